@@ -1,6 +1,8 @@
 import java.io.File;
+import java.util.Iterator;
 import java.util.Random;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -9,14 +11,27 @@ import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
 import api.LocationAPI;
+import api.NearestStationCache;
 import byteStream.ByteStreamHandler;
 import byteStream.ByteStreamInputCars;
+import byteStream.BinaryListLoader;
+import byteStream.CarSource;
 import byteStream.ByteStreamInputChargingStations;
 import car.Car;
+import logging.EventJournal;
+import simulation.AcceleratedClock;
+import simulation.DiscreteEventEngine;
+import simulation.SimulationClock;
+import simulation.SimulationExecutor;
+import stations.AllocationPolicy;
 import stations.ChargingStation;
 
 public class Main {
 
+	private static final String BYTE_STREAM_LOG = "byteStreamLog";
+	private static final long DEFAULT_DRAIN_SECONDS = 3600;
+	private static ByteStreamHandler byteStreamHandler;
+
 	static {
 		Path logsPath = Paths.get("logs");
 		// Create logs dir
@@ -27,10 +42,10 @@ public class Main {
 			Logger.getAnonymousLogger().severe(e.getMessage());
 		}
 
-		// Delete old logs
+		// Delete old logs, the byte stream log keeps its own archive
 		try {
 			for(File file: logsPath.toFile().listFiles()){ 
-				if (!file.isDirectory()){
+				if (!file.isDirectory() && !file.getName().startsWith(BYTE_STREAM_LOG)){
 					file.delete();
 				}
 			}
@@ -47,51 +62,259 @@ public class Main {
 			Logger.getAnonymousLogger().severe("Could not load default logging.properties file");
 			Logger.getAnonymousLogger().severe(e.getMessage());
 		}
-		Logger.getLogger("").addHandler(new ByteStreamHandler("logs/byteStreamLog.log"));
+		byteStreamHandler = new ByteStreamHandler("logs/" + BYTE_STREAM_LOG + ".log");
+		Logger.getLogger("").addHandler(byteStreamHandler);
 	}
 
+	/**
+	 * Starts the simulation. The first argument selects the execution mode:
+	 * "threaded" (default) runs every car, slot and station on its own platform
+	 * thread, "virtual" runs them on virtual threads (Java 21 or later, it
+	 * refuses to start otherwise) and "des" runs everything on the
+	 * discrete-event engine. In "des" mode the second argument is the
+	 * simulated duration in seconds (default 3600).
+	 * The threaded modes run in real time unless the system property
+	 * "simulation.speed" sets a time compression factor, e.g. -Dsimulation.speed=1000.
+	 * The system property "simulation.allocation" selects how stations split
+	 * their energy between charging cars, see AllocationPolicy.
+	 * The system properties "simulation.stations" and "simulation.cars" replace
+	 * the lists in objectLists; files ending in ".bin" are read as binary lists,
+	 * see BinaryListConverter.
+	 * The system property "simulation.journal" names a file the events of the
+	 * run are written to, see EventJournal and EventJournalDecoder.
+	 * The system property "simulation.cacheCell" turns on the station cache
+	 * with cells of that many degrees, see NearestStationCache.
+	 * In the threaded modes the system property "simulation.drainSeconds"
+	 * bounds how many simulated seconds the run waits for the cars on the map
+	 * after the last one was deployed (default 3600).
+	 * The system property "simulation.seed" seeds the station weather and the
+	 * deploy delays, so both kinds of modes start from the same input.
+	 */
 	public static void main(String[] args) {
 		// initiate logger
 		Logger logger = Logger.getLogger("Main");
-		ChargingStation[] sortedStations = new ChargingStation[4];
+		String mode = args.length > 0 ? args[0] : "threaded";
+		String speed = System.getProperty("simulation.speed");
+		if (speed != null) {
+			SimulationClock.set(new AcceleratedClock(Double.parseDouble(speed)));
+			logger.info("Running simulation " + speed + " times faster than real time.");
+		}
+		String journalPath = System.getProperty("simulation.journal");
+		if (journalPath != null) {
+			try {
+				EventJournal.set(new EventJournal(journalPath));
+			} catch (IOException e) {
+				logger.severe("Couldn't open the event journal: " + e.getMessage());
+			}
+		}
 		
 		// Create pool of stations
-		ChargingStation[] stations = ByteStreamInputChargingStations.getChargingStations("objectLists/chargingStationsList.txt");
+		ChargingStation[] stations;
+		try {
+			stations = loadStations(System.getProperty("simulation.stations", "objectLists/chargingStationsList.txt"));
+		} catch (IOException e) {
+			logger.severe("Couldn't read the charging stations: " + e.getMessage());
+			closeJournal(logger);
+			closeLog();
+			return;
+		}
 		logger.info("---------------------------------------");
 		logger.info("Created pool of charging stations.");
 		logger.info("---------------------------------------");
+		// One generator for the weather and the deploy delays, seeded runs repeat
+		Long seed = Long.getLong("simulation.seed");
+		Random random = seed != null ? new Random(seed) : new Random();
+		if (seed != null) {
+			// Stations may be built in parallel, so their weather is picked again in list order
+			for (ChargingStation station: stations) {
+				station.setRandomWeather(random);
+			}
+		}
+		String allocation = System.getProperty("simulation.allocation");
+		if (allocation != null) {
+			for (ChargingStation station: stations) {
+				station.setAllocationPolicy(AllocationPolicy.valueOf(allocation));
+			}
+		}
 		LocationAPI locationAPI = new LocationAPI(stations);
+		String cacheCell = System.getProperty("simulation.cacheCell");
+		if (cacheCell != null) {
+			float cellDegrees = Float.parseFloat(cacheCell);
+			if (cellDegrees > 0) {
+				locationAPI.setNearestStationCache(new NearestStationCache(
+					cellDegrees, NearestStationCache.DEFAULT_CAPACITY, NearestStationCache.DEFAULT_CANDIDATES
+				));
+			}
+		}
 		
-		// Create pool of cars	
-		Car[] cars = ByteStreamInputCars.getCars("objectLists/carsList.txt", locationAPI);
-		logger.info("---------------------------------------");
-		logger.info("Created pool of cars.");
-		logger.info("---------------------------------------");
+		// Cars are read from the file while they are deployed
+		try (CarSource cars = openCars(System.getProperty("simulation.cars", "objectLists/carsList.txt"), locationAPI)) {
+			logger.info("---------------------------------------");
+			logger.info("Opened stream of cars.");
+			logger.info("---------------------------------------");
+
+			if (mode.equals("des")) {
+				long durationSeconds = args.length > 1 ? Long.parseLong(args[1]) : 3600;
+				runDiscreteEvent(logger, stations, cars, random, durationSeconds);
+			} else if (mode.equals("threaded")) {
+				runThreaded(logger, stations, cars, random, SimulationExecutor.platformThreads());
+			} else if (mode.equals("virtual")) {
+				SimulationExecutor executor = SimulationExecutor.virtualThreads();
+				if (!executor.isUsingVirtualThreads()) {
+					executor.shutdown();
+					logger.severe("The virtual mode needs Java 21. Use the threaded mode instead.");
+					closeJournal(logger);
+					closeLog();
+					return;
+				}
+				runThreaded(logger, stations, cars, random, executor);
+			} else {
+				logger.severe("Unknown execution mode: " + mode);
+				closeJournal(logger);
+				closeLog();
+				return;
+			}
+			logger.info(String.format("Deployed %d cars.", cars.getReadCars()));
+		} catch (IOException | UncheckedIOException e) {
+			logger.severe("Couldn't read the cars: " + e.getMessage());
+		}
+		logStationMetrics(logger, stations);
+		logCacheMetrics(logger, locationAPI);
+		logLogMetrics(logger);
+		closeJournal(logger);
+		closeLog();
+	}
+
+	/**
+	 * Writes out what the byte stream log still holds, including the rotation
+	 * state, instead of relying on the shutdown hook of java.util.logging.
+	 */
+	private static void closeLog() {
+		Logger.getLogger("").removeHandler(byteStreamHandler);
+		byteStreamHandler.close();
+	}
+
+	private static void closeJournal(Logger logger) {
+		EventJournal journal = EventJournal.get();
+		if (journal == null) {
+			return;
+		}
+		try {
+			long records = journal.getRecords();
+			journal.close();
+			logger.info(String.format("Wrote %d events to the event journal.", records));
+		} catch (IOException e) {
+			logger.severe("Couldn't close the event journal: " + e.getMessage());
+		}
+	}
+
+	private static ChargingStation[] loadStations(String path) throws IOException {
+		if (path.endsWith(".bin")) {
+			return BinaryListLoader.loadStations(path);
+		}
+		ByteStreamInputChargingStations input = new ByteStreamInputChargingStations();
+		input.chargingStationsInputByteStream(path);
+		return input.getListStations();
+	}
+
+	private static CarSource openCars(String path, LocationAPI locationAPI) throws IOException {
+		if (path.endsWith(".bin")) {
+			return BinaryListLoader.streamCars(path, locationAPI);
+		}
+		return ByteStreamInputCars.streamCars(path, locationAPI);
+	}
+
+	private static void logCacheMetrics(Logger logger, LocationAPI locationAPI) {
+		NearestStationCache cache = locationAPI.getNearestStationCache();
+		if (cache == null) {
+			return;
+		}
+		logger.info(String.format(
+			"Station cache (cell %.4f deg): %d hits, %d misses, hit ratio %.2f",
+			cache.getCellDegrees(), cache.getHits(), cache.getMisses(), cache.getHitRatio()
+		));
+	}
+
+	private static void logLogMetrics(Logger logger) {
+		if (byteStreamHandler.isAsync()) {
+			logger.info(String.format("Log writer: %d records written, %d queued, %d dropped, %d rotations",
+				byteStreamHandler.getWrittenRecords(), byteStreamHandler.getQueuedRecords(),
+				byteStreamHandler.getDroppedRecords(), byteStreamHandler.getRotations()));
+		}
+	}
+
+	private static void logStationMetrics(Logger logger, ChargingStation[] stations) {
+		for (ChargingStation station: stations) {
+			logger.info(String.format(
+				"%s: dispatched %d cars, queue to slot avg %.1f ms, max %d ms",
+				station.toString(), station.getDispatchedCars(),
+				station.getAverageQueueToSlotMillis(), station.getMaxQueueToSlotMillis()
+			));
+		}
+	}
 
+	/**
+	 * Returns the delay in seconds before the next car is deployed
+	 */
+	private static int getDeployDelay(Random random) {
+		return random.nextInt(3) + 1;
+	}
+
+	private static void runThreaded(Logger logger, ChargingStation[] stations, Iterator<Car> cars, Random random,
+			SimulationExecutor executor) {
 		// create pool of threads
 		logger.info("---------------------------------------");
 		logger.info("Starting threads.");
 		logger.info("---------------------------------------");
 
 		for (ChargingStation station: stations){
-			Thread thread = new Thread(station);
-			thread.start();
+			executor.execute(station);
+			executor.execute(station.getEnergyDispatcher());
 		}
 		
-		for(int i = 0; i < cars.length; i++)
-		{
-			Random random = new Random();
-        	int delayTime = random.nextInt(3) + 1;
-			try{
-				Thread.sleep(delayTime * 1000);
-			} catch (Exception e){
-				e.printStackTrace();
+		try {
+			while (cars.hasNext())
+			{
+	        	int delayTime = getDeployDelay(random);
+				try{
+					SimulationClock.sleep(delayTime * 1000);
+				} catch (Exception e){
+					e.printStackTrace();
+				}
+				Car car = cars.next();
+				logger.info(String.format("--- Deploying next car: %s ---", car.toString()));
+				executor.executeCar(car);
 			}
-			Car car = cars[i];
-			logger.info(String.format("--- Deploying next car: %s ---", car.toString()));
-			Thread carThread = new Thread(car);
-			carThread.start();
+			logger.info("-------All cars are deployed.-------");
+		} catch (UncheckedIOException e) {
+			// Let the cars already on the map finish
+			logger.severe("Stopped deploying cars: " + e.getMessage());
 		}
-		logger.info("-------All cars are deployed.-------");
+
+		long drainSeconds = Long.getLong("simulation.drainSeconds", DEFAULT_DRAIN_SECONDS);
+		try {
+			if (executor.awaitCars(drainSeconds * 1000)) {
+				logger.info("-------All cars left the map. Stopping threads.-------");
+			} else {
+				logger.warning(String.format(
+					"%d cars still on the map after %d simulated seconds. Stopping threads.",
+					executor.getRunningCars(), drainSeconds
+				));
+			}
+		} catch (InterruptedException e) {
+			logger.warning("Interrupted while waiting for the cars.");
+		}
+		executor.shutdown();
+	}
+
+	private static void runDiscreteEvent(Logger logger, ChargingStation[] stations, Iterator<Car> cars, Random random,
+			long durationSeconds) {
+		logger.info("---------------------------------------");
+		logger.info("Starting discrete-event engine.");
+		logger.info("---------------------------------------");
+
+		DiscreteEventEngine engine = new DiscreteEventEngine(stations);
+		engine.deployCars(cars, () -> getDeployDelay(random) * 1000L);
+		engine.run(durationSeconds * 1000);
 	}
-}
\ No newline at end of file
+}
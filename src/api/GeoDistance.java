@@ -0,0 +1,107 @@
+package api;
+
+import annotations.Readonly;
+
+/**
+ * Great-circle distances on the earth.
+ *
+ * Positions are turned into points on the unit sphere once. The straight-line
+ * (chord) distance between two such points grows with their great-circle
+ * distance, so stations can be ranked by squared chord length alone. That is
+ * a plain multiply-add loop the JIT vectorizes, and it is correct near the
+ * poles and across the antimeridian. Only distances that are reported need
+ * the conversion to kilometers.
+ */
+public class GeoDistance
+{
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * Haversine distance in kilometers between two positions given in degrees.
+     */
+    @Readonly
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double latitudeDiff = Math.toRadians(latitude2 - latitude1);
+        double longitudeDiff = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(latitudeDiff / 2) * Math.sin(latitudeDiff / 2)
+            + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+            * Math.sin(longitudeDiff / 2) * Math.sin(longitudeDiff / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Returns the unit sphere point of the position as {x, y, z}.
+     */
+    @Readonly
+    public static float[] toUnitVector(double latitude, double longitude)
+    {
+        float[] result = new float[3];
+        toUnitVector(latitude, longitude, result);
+        return result;
+    }
+
+    /**
+     * Writes the unit sphere point of the position into result as {x, y, z}.
+     */
+    @Readonly
+    public static void toUnitVector(double latitude, double longitude, float[] result)
+    {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        result[0] = (float) (cosLatitude * Math.cos(longitudeRadians));
+        result[1] = (float) (cosLatitude * Math.sin(longitudeRadians));
+        result[2] = (float) Math.sin(latitudeRadians);
+    }
+
+    /**
+     * Writes the unit sphere point of the position into x, y and z at index i.
+     */
+    @Readonly
+    public static void toUnitVector(double latitude, double longitude, float[] x, float[] y, float[] z, int i)
+    {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        x[i] = (float) (cosLatitude * Math.cos(longitudeRadians));
+        y[i] = (float) (cosLatitude * Math.sin(longitudeRadians));
+        z[i] = (float) Math.sin(latitudeRadians);
+    }
+
+    /**
+     * Batch kernel: squared chord length between the query point and each of
+     * the first count points, written into result.
+     */
+    @Readonly
+    public static void squaredChordBatch(float[] x, float[] y, float[] z, int count, float queryX, float queryY, float queryZ, float[] result)
+    {
+        for (int i = 0; i < count; i++) {
+            float dx = x[i] - queryX;
+            float dy = y[i] - queryY;
+            float dz = z[i] - queryZ;
+            result[i] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * Converts a squared chord length on the unit sphere to kilometers.
+     */
+    @Readonly
+    public static double squaredChordToKilometers(double squaredChord)
+    {
+        double halfChord = Math.sqrt(squaredChord) / 2;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, halfChord));
+    }
+
+    /**
+     * Converts a distance in kilometers to a squared chord length on the unit sphere.
+     */
+    @Readonly
+    public static double kilometersToSquaredChord(double kilometers)
+    {
+        double angle = Math.min(Math.PI, kilometers / EARTH_RADIUS_KM);
+        double chord = 2 * Math.sin(angle / 2);
+        return chord * chord;
+    }
+}
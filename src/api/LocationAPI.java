@@ -3,12 +3,15 @@ package api;
 import java.lang.Math;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import annotations.Readonly;
 import annotations.Mutable;
 
+import logging.SimLogger;
+import simulation.SimulationClock;
+
 import stations.ChargingStation;
 import car.*;
 
@@ -20,17 +23,25 @@ import exceptions.InvalidGPSObject;
 
 public class LocationAPI
 {
+    private static final SimLogger logger = SimLogger.getLogger("LocationAPI");
+
     ChargingStation[] class_chargingStation;
     Car class_carCar;
+    StationIndex stationIndex;
+    float waitWeight = 1.0f;
+    volatile StationSnapshot snapshot;
+    long snapshotIntervalMillis = 500;
+    AtomicBoolean refreshingSnapshot = new AtomicBoolean(false);
+    NearestStationCache nearestStationCache = null;
 
     public LocationAPI(ChargingStation[] class_chargingStation)
     {
-        this.class_chargingStation = class_chargingStation;
+        this.setChargingStations(class_chargingStation);
     }
 
     public LocationAPI(ChargingStation[] class_chargingStation, Car class_car)
     {
-        this.class_chargingStation = class_chargingStation;
+        this.setChargingStations(class_chargingStation);
         this.class_carCar = class_car;
     }
 
@@ -54,122 +65,308 @@ public class LocationAPI
 
     /**
     * Assign the class ChargingStation to the API so all the functions can use this object.
+    * Rebuilds the spatial index over the station positions.
     */
     @Mutable
     public void setChargingStations(ChargingStation[] varChargingStation)
     {
+        float[] latitudes = new float[varChargingStation.length];
+        float[] longitudes = new float[varChargingStation.length];
+        for (int i = 0; i < varChargingStation.length; i++) {
+            GPSValues gpsValues = varChargingStation[i].getGPSValues();
+            latitudes[i] = gpsValues.getLatitude();
+            longitudes[i] = gpsValues.getLongitude();
+        }
+        this.stationIndex = new StationIndex(latitudes, longitudes);
         this.class_chargingStation = varChargingStation;
+        this.refreshSnapshot();
+    }
+
+    /**
+    * Returns the latest published station snapshot. If it is older than the
+    * snapshot interval in simulated time, the calling thread publishes a new
+    * one, unless another thread is already doing that. Never blocks.
+    */
+    @Readonly
+    public StationSnapshot getSnapshot()
+    {
+        StationSnapshot current = this.snapshot;
+        long age = SimulationClock.millis() - current.getTakenAtMillis();
+        // A negative age means the clock was switched, e.g. to the discrete-event engine
+        if ((age >= this.snapshotIntervalMillis || age < 0) && this.refreshingSnapshot.compareAndSet(false, true)) {
+            try {
+                current = new StationSnapshot(current, false, SimulationClock.millis(), this.class_chargingStation, this.stationIndex);
+                this.snapshot = current;
+            } finally {
+                this.refreshingSnapshot.set(false);
+            }
+        }
+        return current;
+    }
+
+    /**
+    * Publishes a new snapshot right away, e.g. after the stations changed.
+    */
+    @Mutable
+    public void refreshSnapshot()
+    {
+        this.snapshot = new StationSnapshot(this.snapshot, true, SimulationClock.millis(), this.class_chargingStation, this.stationIndex);
+    }
+
+    @Readonly
+    public long getSnapshotIntervalMillis() {
+        return this.snapshotIntervalMillis;
+    }
+
+    /**
+    * Sets how old a snapshot may get, in simulated milliseconds, before it is replaced.
+    */
+    @Mutable
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+    * Returns the k stations closest to the given location by great-circle distance, nearest first.
+    */
+    @Readonly
+    public ChargingStation[] getNearestStations(GPSValues gpsValues, int k)
+    {
+        ChargingStation[] stations = this.class_chargingStation;
+        int[] found = new int[Math.max(0, Math.min(k, stations.length))];
+        int count = this.stationIndex.nearest(gpsValues.getLatitude(), gpsValues.getLongitude(), found.length, found);
+        return toStations(stations, found, count);
+    }
+
+    /**
+    * Returns all stations within the given radius in kilometers around the location, in no particular order.
+    */
+    @Readonly
+    public ChargingStation[] getStationsWithinRadius(GPSValues gpsValues, float radiusKm)
+    {
+        ChargingStation[] stations = this.class_chargingStation;
+        int[] found = new int[stations.length];
+        int count = this.stationIndex.withinRadius(gpsValues.getLatitude(), gpsValues.getLongitude(), radiusKm, found);
+        return toStations(stations, found, count);
+    }
+
+    @Readonly
+    private static ChargingStation[] toStations(ChargingStation[] stations, int[] indices, int count)
+    {
+        ChargingStation[] result = new ChargingStation[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = stations[indices[i]];
+        }
+        return result;
     }
     /**
-    * Calculate the nearest station regarding the auto current location that is given to the function
+    * Calculate the nearest station regarding the auto current location that is given to the function.
+    * Returns the IDs of all stations sorted by distance, with 0 for stations without a free slot for the car.
     */
-    @SuppressWarnings("unused")
     @Readonly
 	protected static int[] sortNearestStation(GPSValues gpsValues, ChargingStation[] class_chargingStation, Car class_carObject) throws InvalidGPSObject, InvalidGPSValueException
     {
-        float LattitudDiff = gpsValues.getLatitude();
-        float LongitudDiff = gpsValues.getLongitude();
-        int[][] totalDistance = new int[class_chargingStation.length][2];
-        int[] sortedArray = new int[totalDistance.length];
-       
-        /* Method where the function 'setChargingStations' was called */
+        /* Method where the function 'setChargingStations' was not called */
         if(class_chargingStation == null)
         {
         	throw new InvalidGPSObject("No Object has been initialiyed...");
         }
-        /* Method where the function 'setChargingStations' was not called */
-        else
+        int[] ranking = rankStations(gpsValues, class_chargingStation, class_carObject);
+        int[] sortedArray = new int[ranking.length];
+        for(int i = 0; i < ranking.length; i++)
         {
-            for(int i = 0; i < class_chargingStation.length; i++)
-            {
-            	try {
-    		        /*
-    		        Calculate the distance between the 2 points
-    		        Where x2 is the station latitude and x1 is the car location
-    		        sqrt[ (x2 - x1)^2 + (y2 - y1)^2 ]
-    		        */
-                    LattitudDiff = (float) Math.pow((class_chargingStation[i].getGPSLatitude() - gpsValues.getLatitude()), 2);
-                    LongitudDiff = (float) Math.pow((class_chargingStation[i].getGPSLongitude() - gpsValues.getLongitude()), 2);
-                    totalDistance[i][0] = (int) class_chargingStation[i].getChargingStationID();
-                    totalDistance[i][1] = (int) Math.sqrt(LattitudDiff + LongitudDiff);
-					
-                    /*
-                     * Exception bound to happen if invalid values are assigned into the operation.
-                     */
-				} catch (Exception arithmeticException) {
-					try {
-						throw new InvalidGPSValueException("Invalid values to calculate distance");
-					} catch (Exception chainedException) {
-						System.out.println("Chained exception happend...");
-						chainedException.printStackTrace();
-					}
-					
-				}
-
-            }
-            /* Compare elements regarding the second position of the array and sort them from shortest to longest */
-            Arrays.sort(totalDistance, Comparator.comparingInt(arr -> arr[1]));
-            for(int i = 0; i<sortedArray.length; i++)
-            {
-            	if((class_carObject instanceof GasCar) && (class_chargingStation[i].getAvailableGasSlots() > 0))
-            	{
-            		sortedArray[i] = totalDistance[i][0];
-            	}
-            	else if((class_carObject instanceof ElectricCar) && (class_chargingStation[i].getAvailableElectricSlots() > 0)) 
-            	{
-            		sortedArray[i] = totalDistance[i][0];
-				}
-            	else {
-					
-				}
-            }
+            sortedArray[i] = ranking[i] < 0 ? 0 : class_chargingStation[ranking[i]].getChargingStationID();
         }
         /* Return the station ID that it is closest to the station */
         return sortedArray;
     }
 
     /**
-    * Calculate the nearest station regarding the auto current location that is given to the function
+    * Calculate the nearest station regarding the auto current location that is given to the function.
+    * Returns all stations sorted by distance, with null for stations without a free slot for the car.
     */
     @Readonly
     public static ChargingStation[] calculateNearestStation(GPSValues gpsValues, ChargingStation[] class_chargingStation, Car class_car) throws InvalidGPSValueException
     {
-        Logger logger = Logger.getLogger("LocationAPI");
-        int[] varSortedArray = new int[class_chargingStation.length];
-        ChargingStation[] sortedStations = new ChargingStation[class_chargingStation.length];
-
-        try {
-			varSortedArray = sortNearestStation(gpsValues, class_chargingStation, class_car);
-		} catch (InvalidGPSObject ex1) {
-			ex1.printStackTrace();
-		}
-        for(int i = 0; i < varSortedArray.length; i++)
+        int[] ranking = rankStations(gpsValues, class_chargingStation, class_car);
+        ChargingStation[] sortedStations = new ChargingStation[ranking.length];
+        for(int i = 0; i < ranking.length; i++)
         {
-            int currentID = varSortedArray[i];
-            for(int j = 0; j < class_chargingStation.length; j++)
-            {
-                ChargingStation tempChargingStation = class_chargingStation[j];
-                if(tempChargingStation.getChargingStationID() == currentID)
-                {
-                    sortedStations[i] = tempChargingStation;
-                    /* Exit current cycle as we already found a match and updated the list */
-                    break;
-                }
-                else
-                {
-                    continue;
-                }
+            sortedStations[i] = ranking[i] < 0 ? null : class_chargingStation[ranking[i]];
+        }
+        logger.log(Level.FINEST, () -> String.format(
+            "Sorted arrays for %s. Result was %s",
+            gpsValues.toString(),
+            Arrays.toString(sortedStations)
+        ));
+        return sortedStations;
+    }
+
+    /**
+    * Sorts the positions of all stations by great-circle distance. Positions of
+    * stations without a free slot for the car are replaced by -1.
+    */
+    @Readonly
+    private static int[] rankStations(GPSValues gpsValues, ChargingStation[] class_chargingStation, Car class_car)
+    {
+        int count = class_chargingStation.length;
+        double[] distances = new double[count];
+        Integer[] order = new Integer[count];
+        for(int i = 0; i < count; i++)
+        {
+            GPSValues stationGPS = class_chargingStation[i].getGPSValues();
+            distances[i] = GeoDistance.haversine(
+                gpsValues.getLatitude(), gpsValues.getLongitude(),
+                stationGPS.getLatitude(), stationGPS.getLongitude()
+            );
+            order[i] = i;
+        }
+        /* Sort the positions, not the IDs, so the availability check looks at the right station */
+        Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+        int[] ranking = new int[count];
+        for(int i = 0; i < count; i++)
+        {
+            ChargingStation station = class_chargingStation[order[i]];
+            ranking[i] = station.getAvailableSlots(class_car.getFuelType()) > 0 ? order[i] : -1;
+        }
+        return ranking;
+    }
+
+    /**
+    * Finds the best k stations for a car at the given position, best first,
+    * writes them into result and returns how many were found.
+    * A station qualifies if it has slots for the fuel type and its expected
+    * waiting time is below maxWaitSeconds. Stations are ranked by distance in
+    * kilometers plus the waiting time weighted by getWaitWeight().
+    * Works on the current snapshot and doesn't read the live stations.
+    * Walks the StationIndex, skipping stations too far away to beat the k-th
+    * best score, and reuses per-thread buffers. With a NearestStationCache,
+    * cars in the same GPS cell share the candidates ranked for the first car
+    * of the cell that missed, and only a cache miss allocates. Misses and the
+    * fallback rank from the car's own position. Caching is off unless a cache
+    * is set.
+    */
+    @Readonly
+    public int findBestStations(GPSValues gpsValues, FuelType fuelType, float maxWaitSeconds, int k, ChargingStation[] result)
+    {
+        StationSnapshot stations = this.getSnapshot();
+        k = Math.min(k, result.length);
+        if (k <= 0 || stations.size() == 0) {
+            return 0;
+        }
+        float latitude = gpsValues.getLatitude();
+        float longitude = gpsValues.getLongitude();
+        NearestStationCache cache = this.nearestStationCache;
+        if (cache == null) {
+            int[] positions = QUERY_BUFFERS.get().positions(k);
+            int found = this.rankStations(stations, latitude, longitude, fuelType, maxWaitSeconds, k, positions);
+            for (int i = 0; i < found; i++) {
+                result[i] = stations.getStation(positions[i]);
             }
+            return found;
         }
-        if (logger.getLevel() == Level.FINEST){
-            logger.finest(String.format(
-                "Sorted arrays for %s. Result was %s",
-                gpsValues.toString(),
-                Arrays.toString(sortedStations)
-            ));
+
+        long key = cache.key(latitude, longitude, fuelType);
+        NearestStationCache.Entry entry = cache.get(key, stations.getVersion(fuelType));
+        boolean cached = entry != null;
+        if (!cached) {
+            int candidates = Math.min(stations.size(), Math.max(k, cache.getCandidates()));
+            int[] positions = QUERY_BUFFERS.get().positions(candidates);
+            int ranked = this.rankStations(stations, latitude, longitude, fuelType,
+                    Float.POSITIVE_INFINITY, candidates, positions);
+            entry = new NearestStationCache.Entry(stations.getVersion(fuelType), Arrays.copyOf(positions, ranked),
+                    ranked == stations.size());
+            cache.put(key, entry);
         }
-        return sortedStations;
+        int found = 0;
+        for (int i = 0; i < entry.positions.length && found < k; i++) {
+            int position = entry.positions[i];
+            if (stations.getExpectedWaitingTime(position, fuelType) < maxWaitSeconds) {
+                result[found++] = stations.getStation(position);
+            }
+        }
+        if (found == k || entry.complete) {
+            cache.recordHit(cached);
+            return found;
+        }
+        // Too few candidates pass this car's waiting limit, rank all stations for the car
+        cache.recordHit(false);
+        int[] positions = QUERY_BUFFERS.get().positions(k);
+        found = this.rankStations(stations, latitude, longitude, fuelType, maxWaitSeconds, k, positions);
+        for (int i = 0; i < found; i++) {
+            result[i] = stations.getStation(positions[i]);
+        }
+        return found;
+    }
+
+    /**
+    * Writes the snapshot positions of the k best qualifying stations for the
+    * given point into positions, best first, and returns how many were found.
+    */
+    @Readonly
+    private int rankStations(StationSnapshot stations, float latitude, float longitude, FuelType fuelType,
+            float maxWaitSeconds, int k, int[] positions)
+    {
+        QueryBuffers buffers = QUERY_BUFFERS.get();
+        buffers.ensureCapacity(k);
+        GeoDistance.toUnitVector(latitude, longitude, buffers.query);
+        return stations.getIndex().best(buffers.query, stations.getExpectedWaitingTimes(fuelType), this.waitWeight,
+                maxWaitSeconds, k, positions, buffers.scores);
     }
+
+    @Readonly
+    public NearestStationCache getNearestStationCache() {
+        return this.nearestStationCache;
+    }
+
+    /**
+    * Sets the cache for findBestStations, null turns caching off.
+    */
+    @Mutable
+    public void setNearestStationCache(NearestStationCache nearestStationCache) {
+        this.nearestStationCache = nearestStationCache;
+    }
+
+    /**
+    * Kilometers a car is willing to drive to save one second of waiting
+    */
+    @Readonly
+    public float getWaitWeight() {
+        return this.waitWeight;
+    }
+
+    @Mutable
+    public void setWaitWeight(float waitWeight) {
+        this.waitWeight = waitWeight;
+    }
+
+    /**
+    * Buffers for findBestStations, one set per thread.
+    */
+    private static class QueryBuffers
+    {
+        float[] query = new float[3];
+        float[] scores = new float[0];
+        int[] positions = new int[0];
+
+        int[] positions(int k)
+        {
+            if (this.positions.length < k) {
+                this.positions = new int[k];
+            }
+            return this.positions;
+        }
+
+        void ensureCapacity(int k)
+        {
+            if (this.scores.length < k) {
+                this.scores = new float[k];
+            }
+        }
+    }
+
+    private static final ThreadLocal<QueryBuffers> QUERY_BUFFERS = ThreadLocal.withInitial(QueryBuffers::new);
+
     /**
     * Validates that the GPS values are a valid value
     */
@@ -0,0 +1,148 @@
+package api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import annotations.Readonly;
+import annotations.Mutable;
+
+import car.FuelType;
+
+/**
+ * Bounded cache of station rankings, keyed by a GPS cell and a fuel type.
+ * Cars in the same cell share the ranked candidates computed for the first
+ * car of the cell that missed; each car's waiting limit is applied when
+ * reading them. Each entry remembers the snapshot version it was computed
+ * on, so it goes stale as soon as the station set or its availability
+ * changes.
+ */
+public class NearestStationCache
+{
+    public static final float DEFAULT_CELL_DEGREES = 0.01f;
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_CANDIDATES = 8;
+
+    private final float cellDegrees;
+    private final int capacity;
+    private final int candidates;
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public NearestStationCache()
+    {
+        this(DEFAULT_CELL_DEGREES, DEFAULT_CAPACITY, DEFAULT_CANDIDATES);
+    }
+
+    /**
+     * candidates is how many ranked stations an entry keeps, regardless of
+     * the waiting limit of the car that caused it.
+     */
+    public NearestStationCache(float cellDegrees, int capacity, int candidates)
+    {
+        if (cellDegrees <= 0 || capacity <= 0 || candidates <= 0) {
+            throw new IllegalArgumentException("Cell size, capacity and candidates must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+        this.capacity = capacity;
+        this.candidates = candidates;
+        this.entries = new ConcurrentHashMap<>(capacity);
+    }
+
+    /**
+     * One cached ranking. positions are indices into the snapshot, best first.
+     * complete means it ranks every station of the snapshot.
+     */
+    static final class Entry
+    {
+        final long version;
+        final int[] positions;
+        final boolean complete;
+
+        Entry(long version, int[] positions, boolean complete)
+        {
+            this.version = version;
+            this.positions = positions;
+            this.complete = complete;
+        }
+    }
+
+    @Readonly
+    public long key(float latitude, float longitude, FuelType fuelType)
+    {
+        long latCell = (long) Math.floor(latitude / this.cellDegrees);
+        long lonCell = (long) Math.floor(longitude / this.cellDegrees);
+        return (latCell << 33) ^ ((lonCell & 0xffffffffL) << 1) ^ fuelType.ordinal();
+    }
+
+    /**
+     * Returns the entry for the cell if it was computed on the given snapshot
+     * version, else null. Doesn't count hits or misses, see recordHit.
+     */
+    @Readonly
+    Entry get(long key, long version)
+    {
+        Entry entry = this.entries.get(key);
+        return entry != null && entry.version == version ? entry : null;
+    }
+
+    @Mutable
+    void recordHit(boolean hit)
+    {
+        if (hit) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+        }
+    }
+
+    /**
+     * Stores an entry. A full cache is emptied first, stale entries of older
+     * snapshots are dropped that way as well.
+     */
+    @Mutable
+    void put(long key, Entry entry)
+    {
+        if (this.entries.size() >= this.capacity && !this.entries.containsKey(key)) {
+            this.entries.clear();
+        }
+        this.entries.put(key, entry);
+    }
+
+    @Mutable
+    public void clear() {
+        this.entries.clear();
+    }
+
+    @Readonly
+    public float getCellDegrees() {
+        return this.cellDegrees;
+    }
+
+    @Readonly
+    public int getCandidates() {
+        return this.candidates;
+    }
+
+    @Readonly
+    public int size() {
+        return this.entries.size();
+    }
+
+    @Readonly
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    @Readonly
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    @Readonly
+    public double getHitRatio() {
+        long hits = this.getHits();
+        long total = hits + this.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
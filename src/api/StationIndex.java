@@ -0,0 +1,328 @@
+package api;
+
+import annotations.Readonly;
+
+/**
+ * Static 3d-tree over station positions on the unit sphere. Built once for a
+ * set of stations, it answers k-nearest and within-radius queries without
+ * looking at every station. Ranking uses the squared chord length, which
+ * orders stations the same way as their great-circle distance, see
+ * GeoDistance. Results are indices into the arrays the index was built from.
+ */
+public class StationIndex {
+    private float[] x;
+    private float[] y;
+    private float[] z;
+    /* Implicit tree: the median of every range is the node, left and right halves its children */
+    private int[] tree;
+
+    public StationIndex(float[] latitudes, float[] longitudes)
+    {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays differ in length.");
+        }
+        this.x = new float[latitudes.length];
+        this.y = new float[latitudes.length];
+        this.z = new float[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            GeoDistance.toUnitVector(latitudes[i], longitudes[i], this.x, this.y, this.z, i);
+        }
+        this.tree = new int[latitudes.length];
+        for (int i = 0; i < this.tree.length; i++) {
+            this.tree[i] = i;
+        }
+        this.build(0, this.tree.length, 0);
+    }
+
+    @Readonly
+    public int size() {
+        return this.tree.length;
+    }
+
+    /**
+     * Writes the indices of the k nearest stations, nearest first, into result
+     * and returns how many were found. result must hold at least k entries.
+     */
+    @Readonly
+    public int nearest(float latitude, float longitude, int k, int[] result)
+    {
+        k = Math.min(k, this.tree.length);
+        if (k <= 0) {
+            return 0;
+        }
+        float[] query = toQuery(latitude, longitude);
+        float[] distances = new float[k];
+        int found = this.nearest(0, this.tree.length, 0, query, k, result, distances, 0);
+        // The candidates are kept as a max-heap, sort them nearest first
+        for (int end = found - 1; end > 0; end--) {
+            swap(result, distances, 0, end);
+            siftDown(result, distances, 0, end);
+        }
+        return found;
+    }
+
+    /**
+     * Writes the indices of the k stations with the lowest score, best first,
+     * into result and returns how many were found. A station scores its
+     * distance in kilometers plus waitWeight times its waiting time, stations
+     * waiting maxWaitSeconds or longer don't qualify. As the score is never
+     * below the distance, the search skips every part of the tree that is
+     * farther away than the k-th best score. query is a unit vector, see
+     * GeoDistance, result and scores must hold at least k entries.
+     */
+    @Readonly
+    public int best(float[] query, float[] waitingTimes, float waitWeight, float maxWaitSeconds, int k,
+            int[] result, float[] scores)
+    {
+        k = Math.min(k, this.tree.length);
+        if (k <= 0) {
+            return 0;
+        }
+        int found = this.best(0, this.tree.length, 0, query, waitingTimes, waitWeight, maxWaitSeconds, k,
+                result, scores, 0);
+        // The candidates are kept as a max-heap, sort them best first
+        for (int end = found - 1; end > 0; end--) {
+            swap(result, scores, 0, end);
+            siftDown(result, scores, 0, end);
+        }
+        return found;
+    }
+
+    /**
+     * Writes the indices of all stations within the radius in kilometers into
+     * result, in no particular order, and returns how many there are. Stops
+     * when result is full.
+     */
+    @Readonly
+    public int withinRadius(float latitude, float longitude, float radiusKm, int[] result)
+    {
+        float squaredRadius = (float) GeoDistance.kilometersToSquaredChord(radiusKm);
+        return this.withinRadius(0, this.tree.length, 0, toQuery(latitude, longitude), squaredRadius, result, 0);
+    }
+
+    /**
+     * Great-circle distance in kilometers from the position to every station,
+     * written into result in the order the index was built from.
+     */
+    @Readonly
+    public void distancesKm(float latitude, float longitude, float[] result)
+    {
+        float[] query = toQuery(latitude, longitude);
+        int count = this.tree.length;
+        GeoDistance.squaredChordBatch(this.x, this.y, this.z, count, query[0], query[1], query[2], result);
+        for (int i = 0; i < count; i++) {
+            result[i] = (float) GeoDistance.squaredChordToKilometers(result[i]);
+        }
+    }
+
+    /**
+     * Squared chord length between the station and the query point, used for ranking.
+     */
+    @Readonly
+    private float distance(int station, float[] query)
+    {
+        float dx = this.x[station] - query[0];
+        float dy = this.y[station] - query[1];
+        float dz = this.z[station] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    @Readonly
+    private float coordinate(int station, int axis)
+    {
+        return axis == 0 ? this.x[station] : (axis == 1 ? this.y[station] : this.z[station]);
+    }
+
+    @Readonly
+    private static float[] toQuery(float latitude, float longitude)
+    {
+        return GeoDistance.toUnitVector(latitude, longitude);
+    }
+
+    @Readonly
+    private static int nextAxis(int axis)
+    {
+        return axis == 2 ? 0 : axis + 1;
+    }
+
+    private void build(int from, int to, int axis)
+    {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        this.select(from, to - 1, middle, axis);
+        this.build(from, middle, nextAxis(axis));
+        this.build(middle + 1, to, nextAxis(axis));
+    }
+
+    /**
+     * Quickselect: moves the station with the given rank on the axis to position k.
+     */
+    private void select(int left, int right, int k, int axis)
+    {
+        while (left < right) {
+            float pivot = this.coordinate(this.tree[(left + right) >>> 1], axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (this.coordinate(this.tree[i], axis) < pivot) {
+                    i++;
+                }
+                while (this.coordinate(this.tree[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = this.tree[i];
+                    this.tree[i] = this.tree[j];
+                    this.tree[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Readonly
+    private int nearest(int from, int to, int axis, float[] query, int k, int[] heap, float[] distances, int found)
+    {
+        if (from >= to) {
+            return found;
+        }
+        int middle = (from + to) >>> 1;
+        int station = this.tree[middle];
+        float distance = this.distance(station, query);
+        if (found < k) {
+            heap[found] = station;
+            distances[found] = distance;
+            siftUp(heap, distances, found);
+            found++;
+        } else if (distance < distances[0]) {
+            heap[0] = station;
+            distances[0] = distance;
+            siftDown(heap, distances, 0, found);
+        }
+
+        float split = query[axis] - this.coordinate(station, axis);
+        boolean leftFirst = split < 0;
+        found = leftFirst
+            ? this.nearest(from, middle, nextAxis(axis), query, k, heap, distances, found)
+            : this.nearest(middle + 1, to, nextAxis(axis), query, k, heap, distances, found);
+        // Only visit the other side if it can hold something closer than the current k-th station
+        if (found < k || split * split < distances[0]) {
+            found = leftFirst
+                ? this.nearest(middle + 1, to, nextAxis(axis), query, k, heap, distances, found)
+                : this.nearest(from, middle, nextAxis(axis), query, k, heap, distances, found);
+        }
+        return found;
+    }
+
+    @Readonly
+    private int best(int from, int to, int axis, float[] query, float[] waitingTimes, float waitWeight,
+            float maxWaitSeconds, int k, int[] heap, float[] scores, int found)
+    {
+        if (from >= to) {
+            return found;
+        }
+        int middle = (from + to) >>> 1;
+        int station = this.tree[middle];
+        float waitingTime = waitingTimes[station];
+        if (waitingTime < maxWaitSeconds) {
+            float score = (float) GeoDistance.squaredChordToKilometers(this.distance(station, query))
+                + waitWeight * waitingTime;
+            if (found < k) {
+                heap[found] = station;
+                scores[found] = score;
+                siftUp(heap, scores, found);
+                found++;
+            } else if (score < scores[0]) {
+                heap[0] = station;
+                scores[0] = score;
+                siftDown(heap, scores, 0, found);
+            }
+        }
+
+        float split = query[axis] - this.coordinate(station, axis);
+        boolean leftFirst = split < 0;
+        found = leftFirst
+            ? this.best(from, middle, nextAxis(axis), query, waitingTimes, waitWeight, maxWaitSeconds, k, heap, scores, found)
+            : this.best(middle + 1, to, nextAxis(axis), query, waitingTimes, waitWeight, maxWaitSeconds, k, heap, scores, found);
+        // Only visit the other side if a station there could be closer than the k-th score
+        if (found < k || split * split < GeoDistance.kilometersToSquaredChord(scores[0])) {
+            found = leftFirst
+                ? this.best(middle + 1, to, nextAxis(axis), query, waitingTimes, waitWeight, maxWaitSeconds, k, heap, scores, found)
+                : this.best(from, middle, nextAxis(axis), query, waitingTimes, waitWeight, maxWaitSeconds, k, heap, scores, found);
+        }
+        return found;
+    }
+
+    @Readonly
+    private int withinRadius(int from, int to, int axis, float[] query, float squaredRadius, int[] result, int found)
+    {
+        if (from >= to || found >= result.length) {
+            return found;
+        }
+        int middle = (from + to) >>> 1;
+        int station = this.tree[middle];
+        if (this.distance(station, query) <= squaredRadius) {
+            result[found++] = station;
+        }
+        float split = query[axis] - this.coordinate(station, axis);
+        if (split < 0 || split * split <= squaredRadius) {
+            found = this.withinRadius(from, middle, nextAxis(axis), query, squaredRadius, result, found);
+        }
+        if (split >= 0 || split * split <= squaredRadius) {
+            found = this.withinRadius(middle + 1, to, nextAxis(axis), query, squaredRadius, result, found);
+        }
+        return found;
+    }
+
+    private static void siftUp(int[] heap, float[] distances, int position)
+    {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (distances[parent] >= distances[position]) {
+                return;
+            }
+            swap(heap, distances, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, float[] distances, int position, int size)
+    {
+        while (true) {
+            int largest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if (right < size && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if (largest == position) {
+                return;
+            }
+            swap(heap, distances, position, largest);
+            position = largest;
+        }
+    }
+
+    private static void swap(int[] heap, float[] distances, int a, int b)
+    {
+        int station = heap[a];
+        heap[a] = heap[b];
+        heap[b] = station;
+        float distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+}
@@ -0,0 +1,152 @@
+package api;
+
+import java.util.Arrays;
+
+import annotations.Readonly;
+import car.FuelType;
+import stations.ChargingStation;
+
+/**
+ * Immutable copy of the routing-relevant state of all stations, kept as
+ * primitive arrays. LocationAPI publishes a new snapshot from time to time,
+ * and cars rank stations on it without locks and without touching the live
+ * station objects.
+ */
+public class StationSnapshot
+{
+    private final long version;
+    private final long gasVersion;
+    private final long electricVersion;
+    private final long takenAtMillis;
+    private final ChargingStation[] stations;
+    private final StationIndex index;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final int[] freeGasSlots;
+    private final int[] freeElectricSlots;
+    private final float[] gasWaitingTimes;
+    private final float[] electricWaitingTimes;
+    private final float[] gasStorage;
+    private final float[] electricityStorage;
+
+    /**
+     * Reads the current state of every station. The spatial index only
+     * depends on the positions and is shared between snapshots.
+     * The versions continue those of previous: the snapshot version changes
+     * if any free slots or waiting times changed, the version of a fuel type
+     * only if the waiting times of that type changed. stationsChanged forces
+     * new versions, as does a different station array.
+     */
+    public StationSnapshot(StationSnapshot previous, boolean stationsChanged, long takenAtMillis,
+            ChargingStation[] stations, StationIndex index)
+    {
+        int count = stations.length;
+        this.takenAtMillis = takenAtMillis;
+        this.stations = stations;
+        this.index = index;
+        this.latitudes = new float[count];
+        this.longitudes = new float[count];
+        this.freeGasSlots = new int[count];
+        this.freeElectricSlots = new int[count];
+        this.gasWaitingTimes = new float[count];
+        this.electricWaitingTimes = new float[count];
+        this.gasStorage = new float[count];
+        this.electricityStorage = new float[count];
+        for (int i = 0; i < count; i++) {
+            ChargingStation station = stations[i];
+            GPSValues gpsValues = station.getGPSValues();
+            this.latitudes[i] = gpsValues.getLatitude();
+            this.longitudes[i] = gpsValues.getLongitude();
+            this.freeGasSlots[i] = station.getAvailableGasSlots();
+            this.freeElectricSlots[i] = station.getAvailableElectricSlots();
+            this.gasWaitingTimes[i] = station.getExpectedWaitingTimeForGasCars();
+            this.electricWaitingTimes[i] = station.getExpectedWaitingTimeForElectricCars();
+            this.gasStorage[i] = station.getLevelOfGasStorage();
+            this.electricityStorage[i] = station.getLevelOfElectricityStorage();
+        }
+
+        if (previous == null) {
+            this.version = 0;
+            this.gasVersion = 0;
+            this.electricVersion = 0;
+            return;
+        }
+        boolean changed = stationsChanged || previous.stations != stations;
+        boolean gasChanged = changed || !Arrays.equals(this.gasWaitingTimes, previous.gasWaitingTimes);
+        boolean electricChanged = changed || !Arrays.equals(this.electricWaitingTimes, previous.electricWaitingTimes);
+        changed = gasChanged || electricChanged
+                || !Arrays.equals(this.freeGasSlots, previous.freeGasSlots)
+                || !Arrays.equals(this.freeElectricSlots, previous.freeElectricSlots);
+        this.version = previous.version + (changed ? 1 : 0);
+        this.gasVersion = previous.gasVersion + (gasChanged ? 1 : 0);
+        this.electricVersion = previous.electricVersion + (electricChanged ? 1 : 0);
+    }
+
+    @Readonly
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Version of the waiting times of a fuel type, which is all a ranking
+     * for that type depends on besides the positions.
+     */
+    @Readonly
+    public long getVersion(FuelType fuelType) {
+        return fuelType == FuelType.electric ? this.electricVersion : this.gasVersion;
+    }
+
+    @Readonly
+    public long getTakenAtMillis() {
+        return this.takenAtMillis;
+    }
+
+    @Readonly
+    public int size() {
+        return this.stations.length;
+    }
+
+    @Readonly
+    public ChargingStation getStation(int i) {
+        return this.stations[i];
+    }
+
+    @Readonly
+    public StationIndex getIndex() {
+        return this.index;
+    }
+
+    @Readonly
+    public float getLatitude(int i) {
+        return this.latitudes[i];
+    }
+
+    @Readonly
+    public float getLongitude(int i) {
+        return this.longitudes[i];
+    }
+
+    @Readonly
+    public int getFreeSlots(int i, FuelType fuelType) {
+        return fuelType == FuelType.electric ? this.freeElectricSlots[i] : this.freeGasSlots[i];
+    }
+
+    @Readonly
+    public float getExpectedWaitingTime(int i, FuelType fuelType) {
+        return fuelType == FuelType.electric ? this.electricWaitingTimes[i] : this.gasWaitingTimes[i];
+    }
+
+    /**
+     * Waiting times of all stations for the fuel type, by position. The array
+     * is shared with the snapshot and must not be changed.
+     */
+    @Readonly
+    float[] getExpectedWaitingTimes(FuelType fuelType) {
+        return fuelType == FuelType.electric ? this.electricWaitingTimes : this.gasWaitingTimes;
+    }
+
+    @Readonly
+    public float getStorageLevel(int i, FuelType fuelType) {
+        return fuelType == FuelType.electric ? this.electricityStorage[i] : this.gasStorage[i];
+    }
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import byteStream.BinaryListConverter;
+import byteStream.BinaryListFormat;
+import byteStream.BinaryListLoader;
+import byteStream.ByteStreamInputCars;
+import byteStream.ByteStreamInputChargingStations;
+import byteStream.ByteStreamLineReader;
+import byteStream.RecordTokenizer;
+import car.Car;
+import stations.ChargingStation;
+
+/**
+ * Compares loading the text lists with loading their binary form. Decoding
+ * the records is compared in the same run. Building the objects is timed
+ * for one format per run: every car and station creates a named logger, and
+ * recreating loggers whose objects were already collected makes a second
+ * build in the same JVM much slower.
+ * The generated files are kept in the directory, so later runs with the
+ * same sizes skip generating and converting them.
+ * Usage: java benchmark.BinaryLoadBenchmark [stations] [cars] [binary|text] [directory]
+ */
+public class BinaryLoadBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int carCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+		boolean buildText = args.length > 2 && args[2].equals("text");
+		File directory = new File(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"), "ev-load-benchmark");
+		directory.mkdirs();
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		File stationText = new File(directory, "stations-" + stationCount + ".txt");
+		File stationBinary = new File(directory, "stations-" + stationCount + ".bin");
+		File carText = new File(directory, "cars-" + carCount + ".txt");
+		File carBinary = new File(directory, "cars-" + carCount + ".bin");
+		if (!stationBinary.exists() || !carBinary.exists()) {
+			writeStations(stationText, stationCount);
+			writeCars(carText, carCount);
+			long start = System.nanoTime();
+			BinaryListConverter.convertStations(stationText.getPath(), stationBinary.getPath());
+			BinaryListConverter.convertCars(carText.getPath(), carBinary.getPath());
+			System.out.println(String.format("converted both lists in %.2f s", (System.nanoTime() - start) / 1e9));
+		} else {
+			System.out.println("reusing the lists in " + directory);
+		}
+		System.out.println(String.format("stations=%d  text=%.1f MB  binary=%.1f MB", stationCount,
+			stationText.length() / 1e6, stationBinary.length() / 1e6));
+		System.out.println(String.format("cars=%d  text=%.1f MB  binary=%.1f MB", carCount,
+			carText.length() / 1e6, carBinary.length() / 1e6));
+
+		for (int round = 0; round < 2; round++) {
+			long start = System.nanoTime();
+			double checksum = decodeText(carText.getPath());
+			double textSeconds = (System.nanoTime() - start) / 1e9;
+			start = System.nanoTime();
+			checksum -= decodeBinary(carBinary.getPath());
+			double binarySeconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("decode cars:    text %.2f s  binary %.2f s  (difference %.0f)",
+				textSeconds, binarySeconds, checksum));
+		}
+
+		String format = buildText ? "text" : "binary";
+		long start = System.nanoTime();
+		ChargingStation[] stations = buildText
+			? ByteStreamInputChargingStations.getChargingStations(stationText.getPath())
+			: BinaryListLoader.loadStations(stationBinary.getPath());
+		double stationSeconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("build stations from %s: %.2f s  (%d stations)", format, stationSeconds, stations.length));
+
+		start = System.nanoTime();
+		Car[] cars = buildText
+			? ByteStreamInputCars.getCars(carText.getPath(), null)
+			: BinaryListLoader.loadCars(carBinary.getPath(), null);
+		double carSeconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("build cars from %s: %.2f s  (%d cars)", format, carSeconds, cars.length));
+	}
+
+	private static double decodeText(String path) throws IOException {
+		double checksum = 0;
+		RecordTokenizer fields = new RecordTokenizer();
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(path)) {
+			while (reader.nextLine()) {
+				fields.reset(reader);
+				fields.nextToken("car type");
+				fields.nextToken("car number");
+				for (int i = 0; i < 5; i++) {
+					checksum += fields.nextFloat("value");
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static double decodeBinary(String path) throws IOException {
+		double checksum = 0;
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int count = BinaryListFormat.readHeader(records, BinaryListFormat.KIND_CARS, channel.size());
+			for (int i = 0; i < count; i++) {
+				int values = BinaryListFormat.HEADER_SIZE + i * BinaryListFormat.CAR_RECORD_SIZE + 2 + BinaryListFormat.CAR_NUMBER_BYTES;
+				for (int v = 0; v < 5; v++) {
+					checksum += records.getFloat(values + v * 4);
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static void writeStations(File file, int count) throws IOException {
+		Random random = new Random(42);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 20)) {
+			for (int i = 0; i < count; i++) {
+				writer.write(String.format("%d %.4f %.4f %d %d 2.5 15.0 1000 1000",
+					i + 1, random.nextFloat() * 180 - 90, random.nextFloat() * 360 - 180,
+					1 + random.nextInt(4), 1 + random.nextInt(4)));
+				writer.newLine();
+			}
+		}
+	}
+
+	private static void writeCars(File file, int count) throws IOException {
+		Random random = new Random(42);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 20)) {
+			for (int i = 0; i < count; i++) {
+				writer.write(random.nextBoolean() ? "ElectricCar" : "GasCar");
+				writer.write(String.format(" Car%d %.1f %.1f %.1f %d %d", i,
+					random.nextFloat() * 20, 100 + random.nextFloat() * 800, 30 + random.nextFloat() * 90,
+					random.nextInt(180) - 90, random.nextInt(360) - 180));
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import api.GPSValues;
+import car.Car;
+import car.CarState;
+import car.ElectricCar;
+import car.GasCar;
+import stations.WaitingLane;
+
+/**
+ * Measures the cost of taking the next electric car out of a waiting queue
+ * that also holds gas cars, for growing queue lengths. Compares the old
+ * single ArrayList scan with the per-fuel-type WaitingLane.
+ * Usage: java benchmark.DispatchBenchmark [queueLength...]
+ */
+public class DispatchBenchmark {
+	private static final int SCAN_OPERATIONS = 2_000;
+	private static final int LANE_OPERATIONS = 200_000;
+
+	public static void main(String[] args) {
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		int[] queueLengths = {100, 1_000, 10_000, 100_000};
+		if (args.length > 0) {
+			queueLengths = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				queueLengths[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		for (int queueLength: queueLengths) {
+			// Gas cars first, so the scan has to pass all of them
+			Car[] cars = new Car[queueLength];
+			for (int i = 0; i < queueLength; i++) {
+				GPSValues gps = new GPSValues(10, 10);
+				if (i < queueLength / 2) {
+					cars[i] = new GasCar("Gas" + i, 10, 50, 30, null, gps);
+				} else {
+					cars[i] = new ElectricCar("Electric" + i, 10, 50, 30, null, gps);
+				}
+			}
+			// warm up
+			runArrayList(cars);
+			runLanes(cars);
+			System.out.println(String.format(
+				"queue=%-7d arrayList=%10.1f ns/dispatch  lanes=%8.1f ns/dispatch",
+				queueLength, runArrayList(cars), runLanes(cars)
+			));
+		}
+	}
+
+	private static double runArrayList(Car[] cars) {
+		ArrayList<Car> waitingQueue = new ArrayList<Car>();
+		for (Car car: cars) {
+			waitingQueue.add(car);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < SCAN_OPERATIONS; i++) {
+			Optional<Car> next = waitingQueue.stream()
+				.filter(car -> car instanceof ElectricCar).findFirst();
+			Car car = next.get();
+			waitingQueue.remove(car);
+			waitingQueue.add(car);
+		}
+		return (double) (System.nanoTime() - start) / SCAN_OPERATIONS;
+	}
+
+	private static double runLanes(Car[] cars) {
+		WaitingLane gasLane = new WaitingLane();
+		WaitingLane electricLane = new WaitingLane();
+		for (Car car: cars) {
+			// Only looking cars join a lane, the warm up left them waiting
+			car.setCurrentState(CarState.looking);
+			if (car instanceof ElectricCar) {
+				electricLane.add(car);
+			} else {
+				gasLane.add(car);
+			}
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < LANE_OPERATIONS; i++) {
+			Car car = electricLane.poll();
+			// Only looking cars join a lane
+			car.setCurrentState(CarState.looking);
+			electricLane.add(car);
+		}
+		return (double) (System.nanoTime() - start) / LANE_OPERATIONS;
+	}
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import java.util.Random;
+
+import api.GeoDistance;
+
+/**
+ * Compares the batched great-circle distance kernel with the per-station
+ * Euclidean distance on degrees (Math.pow, Math.sqrt, cast to int) that
+ * LocationAPI used to compute, over primitive arrays of all stations.
+ * Usage: java benchmark.DistanceKernelBenchmark [stationCount]
+ */
+public class DistanceKernelBenchmark {
+	private static final int ROUNDS = 200;
+
+	public static void main(String[] args) {
+		int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		Random random = new Random(42);
+		float[] latitudes = new float[stationCount];
+		float[] longitudes = new float[stationCount];
+		float[] x = new float[stationCount];
+		float[] y = new float[stationCount];
+		float[] z = new float[stationCount];
+		for (int i = 0; i < stationCount; i++) {
+			latitudes[i] = random.nextFloat() * 180 - 90;
+			longitudes[i] = random.nextFloat() * 360 - 180;
+			GeoDistance.toUnitVector(latitudes[i], longitudes[i], x, y, z, i);
+		}
+		int[] euclidean = new int[stationCount];
+		float[] chords = new float[stationCount];
+
+		for (int warmup = 0; warmup < 3; warmup++) {
+			runEuclidean(latitudes, longitudes, euclidean);
+			runKernel(x, y, z, chords);
+		}
+		double euclideanNanos = runEuclidean(latitudes, longitudes, euclidean);
+		double kernelNanos = runKernel(x, y, z, chords);
+
+		System.out.println(String.format(
+			"stations=%d  euclideanDegrees=%.2f ns/station  greatCircleKernel=%.2f ns/station  speedup=%.1fx",
+			stationCount, euclideanNanos, kernelNanos, euclideanNanos / kernelNanos
+		));
+	}
+
+	private static double runEuclidean(float[] latitudes, float[] longitudes, int[] result) {
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			float latitude = round % 90;
+			float longitude = round % 180;
+			for (int i = 0; i < latitudes.length; i++) {
+				float latitudeDiff = (float) Math.pow(latitudes[i] - latitude, 2);
+				float longitudeDiff = (float) Math.pow(longitudes[i] - longitude, 2);
+				result[i] = (int) Math.sqrt(latitudeDiff + longitudeDiff);
+			}
+		}
+		return (double) (System.nanoTime() - start) / ROUNDS / latitudes.length;
+	}
+
+	private static double runKernel(float[] x, float[] y, float[] z, float[] result) {
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			float[] query = GeoDistance.toUnitVector(round % 90, round % 180);
+			GeoDistance.squaredChordBatch(x, y, z, x.length, query[0], query[1], query[2], result);
+		}
+		return (double) (System.nanoTime() - start) / ROUNDS / x.length;
+	}
+}
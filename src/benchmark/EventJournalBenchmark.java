@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import byteStream.ByteStreamHandler;
+import byteStream.OverflowPolicy;
+import car.CarState;
+import logging.EventJournal;
+
+/**
+ * Writes the same events as text log lines through SimpleFormatter and the
+ * ByteStreamHandler, and as EventJournal records, and compares the bytes and
+ * the time per event. Half of the events are energy deliveries, the rest
+ * car state changes.
+ * Usage: java benchmark.EventJournalBenchmark [events] [cars]
+ */
+public class EventJournalBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int carCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		LogManager.getLogManager().reset();
+		String[] cars = new String[carCount];
+		String[] slots = new String[carCount];
+		for (int i = 0; i < carCount; i++) {
+			cars[i] = "Car" + i;
+			slots[i] = String.format("Charging Station %d-ElecticSlot-%d ", i / 4, i % 4 + 1);
+		}
+		CarState[] states = CarState.values();
+
+		for (int round = 0; round < 2; round++) {
+			File textFile = File.createTempFile("events", ".log");
+			textFile.deleteOnExit();
+			ByteStreamHandler handler = new ByteStreamHandler(textFile.getPath(), false, 0, 0, OverflowPolicy.block, 1);
+			Logger root = Logger.getLogger("");
+			root.setLevel(Level.INFO);
+			root.addHandler(handler);
+			Logger[] slotLoggers = new Logger[carCount];
+			Logger[] carLoggers = new Logger[carCount];
+			for (int i = 0; i < carCount; i++) {
+				slotLoggers[i] = Logger.getLogger(slots[i]);
+				carLoggers[i] = Logger.getLogger("ElectricCar " + cars[i]);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < events; i++) {
+				int car = i % carCount;
+				if ((i & 1) == 0) {
+					slotLoggers[car].info(String.format("Adding %.2f to car %s", 15.0f, "ElectricCar " + cars[car]));
+				} else {
+					carLoggers[car].info(String.format("Updating state to %s", states[i % states.length]));
+				}
+			}
+			double textSeconds = (System.nanoTime() - start) / 1e9;
+			root.removeHandler(handler);
+			handler.close();
+
+			File journalFile = File.createTempFile("events", ".bin");
+			journalFile.deleteOnExit();
+			start = System.nanoTime();
+			try (EventJournal journal = new EventJournal(journalFile.getPath())) {
+				for (int car = 0; car < carCount; car++) {
+					journal.name(car, cars[car]);
+				}
+				for (int i = 0; i < events; i++) {
+					int car = i % carCount;
+					if ((i & 1) == 0) {
+						journal.energyDelivered(car, 15.0f);
+					} else {
+						journal.carState(car, states[i % states.length]);
+					}
+				}
+			}
+			double journalSeconds = (System.nanoTime() - start) / 1e9;
+
+			System.out.println(String.format(
+				"text:    %6.1f B/event  %7.0f ns/event%njournal: %6.1f B/event  %7.0f ns/event  (%.0fx smaller, %.0fx faster)",
+				(double) textFile.length() / events, textSeconds * 1e9 / events,
+				(double) journalFile.length() / events, journalSeconds * 1e9 / events,
+				(double) textFile.length() / journalFile.length(), textSeconds / journalSeconds));
+			textFile.delete();
+			journalFile.delete();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import byteStream.ByteStreamInputCars;
+import byteStream.ByteStreamLineReader;
+import byteStream.CarStream;
+import byteStream.RecordTokenizer;
+import car.Car;
+
+/**
+ * Generates a fleet file and compares the raw read speed of the disk with
+ * the single-pass line reader, field parsing through String.split and
+ * through the RecordTokenizer, the full car loader and the car stream,
+ * including how soon the stream hands out its first car. The old unbuffered
+ * byte-at-a-time read is timed on the smaller file only, it takes minutes
+ * on the big one.
+ * Usage: java benchmark.FleetLoadBenchmark [lines] [loadLines]
+ */
+public class FleetLoadBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int loadLines = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		File fleetFile = File.createTempFile("fleet", ".txt");
+		File loadFile = File.createTempFile("fleet-load", ".txt");
+		fleetFile.deleteOnExit();
+		loadFile.deleteOnExit();
+		writeFleet(fleetFile, lines);
+		writeFleet(loadFile, loadLines);
+		double megabytes = fleetFile.length() / 1e6;
+		System.out.println(String.format("file=%d lines, %.1f MB", lines, megabytes));
+
+		long start = System.nanoTime();
+		long bytes = readRaw(fleetFile.getPath());
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("raw channel read:  %.2f s  %.0f MB/s", seconds, bytes / 1e6 / seconds));
+
+		start = System.nanoTime();
+		long count = 0;
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(fleetFile.getPath())) {
+			while (reader.nextLine()) {
+				count++;
+			}
+		}
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("line reader:       %.2f s  %.0f MB/s  %.1f M lines/s",
+			seconds, megabytes / seconds, count / 1e6 / seconds));
+
+		for (int round = 0; round < 2; round++) {
+			start = System.nanoTime();
+			double checksum = parseWithSplit(fleetFile.getPath());
+			seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("split parse:       %.2f s  %.1f M lines/s  (checksum %.0f)",
+				seconds, lines / 1e6 / seconds, checksum));
+
+			start = System.nanoTime();
+			checksum = parseWithTokenizer(fleetFile.getPath());
+			seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("tokenizer parse:   %.2f s  %.1f M lines/s  (checksum %.0f)",
+				seconds, lines / 1e6 / seconds, checksum));
+		}
+
+		start = System.nanoTime();
+		Car[] cars = ByteStreamInputCars.getCars(loadFile.getPath(), null);
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("car loader:        %.2f s  %d cars  %.2f M cars/s",
+			seconds, cars.length, cars.length / 1e6 / seconds));
+		cars = null;
+
+		start = System.nanoTime();
+		try (CarStream stream = ByteStreamInputCars.streamCars(fleetFile.getPath(), null)) {
+			stream.next();
+			System.out.println(String.format("stream first car:  %.2f ms after opening the big file",
+				(System.nanoTime() - start) / 1e6));
+		}
+
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+		long peakUsed = 0;
+		start = System.nanoTime();
+		try (CarStream stream = ByteStreamInputCars.streamCars(loadFile.getPath(), null)) {
+			while (stream.hasNext()) {
+				stream.next();
+				if (stream.getReadCars() % 10_000 == 0) {
+					peakUsed = Math.max(peakUsed, runtime.totalMemory() - runtime.freeMemory() - usedBefore);
+				}
+			}
+			seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("car stream:        %.2f s  %d cars  %.2f M cars/s  heap growth <= %.0f MB",
+				seconds, stream.getReadCars(), stream.getReadCars() / 1e6 / seconds, peakUsed / 1e6));
+		}
+
+		start = System.nanoTime();
+		count = readUnbuffered(loadFile.getPath());
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("unbuffered read:   %.2f s  %d lines  %.0f MB/s",
+			seconds, count, loadFile.length() / 1e6 / seconds));
+	}
+
+	private static void writeFleet(File file, int lines) throws IOException {
+		Random random = new Random(42);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 20)) {
+			for (int i = 0; i < lines; i++) {
+				boolean electric = random.nextBoolean();
+				writer.write(electric ? "ElectricCar" : "GasCar");
+				writer.write(" Car" + i + " ");
+				writer.write(String.format("%.1f %.1f %.1f %d %d",
+					random.nextFloat() * 20, 100 + random.nextFloat() * 800, 30 + random.nextFloat() * 90,
+					random.nextInt(180) - 90, random.nextInt(360) - 180));
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Parses the fields the way the loader used to, without creating cars.
+	 */
+	private static double parseWithSplit(String path) throws IOException {
+		double checksum = 0;
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(path)) {
+			while (reader.nextLine()) {
+				String[] fields = reader.getLine().split(" ");
+				checksum += fields[0].length() + fields[1].length();
+				for (int i = 2; i < 7; i++) {
+					checksum += Float.parseFloat(fields[i]);
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static double parseWithTokenizer(String path) throws IOException {
+		double checksum = 0;
+		RecordTokenizer tokenizer = new RecordTokenizer();
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(path)) {
+			while (reader.nextLine()) {
+				tokenizer.reset(reader);
+				tokenizer.nextToken("car type");
+				checksum += tokenizer.getTokenLength();
+				tokenizer.nextToken("car number");
+				checksum += tokenizer.getTokenLength();
+				for (int i = 2; i < 7; i++) {
+					checksum += tokenizer.nextFloat("field");
+				}
+			}
+		}
+		return checksum;
+	}
+
+	private static long readRaw(String path) throws IOException {
+		long total = 0;
+		ByteBuffer buffer = ByteBuffer.allocate(ByteStreamLineReader.DEFAULT_BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			int read;
+			while ((read = channel.read(buffer)) >= 0) {
+				total += read;
+				buffer.clear();
+			}
+		}
+		return total;
+	}
+
+	private static long readUnbuffered(String path) throws IOException {
+		long newlines = 0;
+		try (FileInputStream reader = new FileInputStream(path)) {
+			int byteData;
+			while ((byteData = reader.read()) != -1) {
+				if (byteData == '\n') {
+					newlines++;
+				}
+			}
+		}
+		return newlines;
+	}
+}
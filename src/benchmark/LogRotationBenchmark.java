@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import byteStream.ByteStreamHandler;
+import byteStream.OverflowPolicy;
+
+/**
+ * Publishes records into a ByteStreamHandler with and without rotation and
+ * reports the time a single publish() takes at the 99.9th percentile and at
+ * worst, together with the rotations and what is left in the log directory.
+ * With rotation a segment is closed every maxBytes and gzipped in the
+ * background.
+ * Usage: java benchmark.LogRotationBenchmark [records] [maxBytes] [maxTotalBytes]
+ */
+public class LogRotationBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		long maxBytes = args.length > 1 ? Long.parseLong(args[1]) : 1 << 20;
+		long maxTotalBytes = args.length > 2 ? Long.parseLong(args[2]) : 4 << 20;
+		LogManager.getLogManager().reset();
+
+		for (int round = 0; round < 2; round++) {
+			for (boolean async: new boolean[] {false, true}) {
+				run(async ? "async" : "sync", records, async, 0, 0);
+				run(async ? "async rotate" : "sync rotate", records, async, maxBytes, maxTotalBytes);
+			}
+		}
+	}
+
+	private static void run(String name, int records, boolean async, long maxBytes, long maxTotalBytes)
+			throws IOException {
+		File directory = Files.createTempDirectory("rotation").toFile();
+		File logFile = new File(directory, "bench.log");
+		ByteStreamHandler handler = new ByteStreamHandler(logFile.getPath(), async, 16384,
+			ByteStreamHandler.DEFAULT_FLUSH_INTERVAL_MILLIS, OverflowPolicy.block, ByteStreamHandler.DEFAULT_SAMPLE_RATE,
+			maxBytes, 0, maxTotalBytes, true);
+
+		long[] nanos = new long[records];
+		for (int i = 0; i < records; i++) {
+			LogRecord record = new LogRecord(Level.INFO, "Adding 15.00 to car ElectricCar Car" + (i % 1000));
+			record.setLoggerName("Charging Station 1-ElecticSlot-1 ");
+			long start = System.nanoTime();
+			handler.publish(record);
+			nanos[i] = System.nanoTime() - start;
+		}
+		handler.close();
+		Arrays.sort(nanos);
+
+		long retained = 0;
+		File[] files = directory.listFiles();
+		for (File file: files) {
+			retained += file.length();
+			file.delete();
+		}
+		directory.delete();
+		System.out.println(String.format(
+			"%-13s p99.9 %8.1f us  max %8.1f us  rotations %4d  files %4d  on disk %6.1f MB",
+			name, nanos[(int) (records * 0.999)] / 1e3, nanos[records - 1] / 1e3,
+			handler.getRotations(), files.length, retained / 1e6));
+	}
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import api.GPSValues;
+import car.Car;
+import car.ElectricCar;
+import car.GasCar;
+
+/**
+ * Creates cars in batches, keeps every car of a batch alive while it is
+ * built, as if they were all on the map, and drops them afterwards. Prints
+ * how long a car takes to build, how many loggers the LogManager knows and
+ * the heap left after a GC, which should stay flat however many cars passed
+ * through.
+ * Usage: java benchmark.LoggerFootprintBenchmark [cars] [batch]
+ */
+public class LoggerFootprintBenchmark {
+
+	public static void main(String[] args) {
+		int carCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int batch = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+		Runtime runtime = Runtime.getRuntime();
+
+		Car[] cars = new Car[batch];
+		for (int done = 0; done < carCount; done += batch) {
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; i++) {
+				GPSValues gps = new GPSValues(10, 10);
+				int number = done + i;
+				cars[i] = (number & 1) == 0
+					? new GasCar("Gas" + number, 10, 50, 30, null, gps)
+					: new ElectricCar("Electric" + number, 10, 50, 30, null, gps);
+			}
+			double nanosPerCar = (double) (System.nanoTime() - start) / batch;
+			java.util.Arrays.fill(cars, null);
+			System.gc();
+			long used = runtime.totalMemory() - runtime.freeMemory();
+			int loggers = Collections.list(LogManager.getLogManager().getLoggerNames()).size();
+			System.out.println(String.format("cars=%-8d %7.0f ns/car  loggers=%-8d heap after gc %6.1f MB",
+				done + batch, nanosPerCar, loggers, used / 1e6));
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import api.GPSValues;
+import api.LocationAPI;
+import car.Car;
+import car.ElectricCar;
+import car.GasCar;
+import simulation.DiscreteEventEngine;
+import stations.ChargingStation;
+
+/**
+ * Runs the discrete-event engine with the root level at INFO and at OFF and
+ * reports the bytes the simulation thread allocates per simulated second
+ * (tick) and per event. The records go to a handler that only counts them,
+ * so the numbers show the cost of building the messages and not of writing
+ * them.
+ * Usage: java benchmark.LoggingAllocationBenchmark [stations] [cars] [seconds]
+ */
+public class LoggingAllocationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int carCount = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+		LogManager.getLogManager().reset();
+		CountingHandler handler = new CountingHandler();
+		Logger.getLogger("").addHandler(handler);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		Level[] levels = {Level.OFF, Level.INFO, Level.OFF, Level.INFO};
+		for (Level level: levels) {
+			Logger.getLogger("").setLevel(Level.OFF);
+			ChargingStation[] stations = createStations(stationCount);
+			LocationAPI api = new LocationAPI(stations);
+			ArrayList<Car> cars = createCars(carCount, api);
+			DiscreteEventEngine engine = new DiscreteEventEngine(stations);
+			engine.deployCars(cars.iterator(), () -> 100);
+
+			Logger.getLogger("").setLevel(level);
+			handler.records = 0;
+			long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			engine.run(seconds * 1000L);
+			long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			Logger.getLogger("").setLevel(Level.OFF);
+
+			System.out.println(String.format(
+				"level=%-4s %8.1f KB/tick  %6.0f B/event  %9d records  %6.2f s",
+				level, allocated / 1e3 / seconds, (double) allocated / engine.getProcessedEvents(),
+				handler.records, elapsed));
+		}
+	}
+
+	private static ChargingStation[] createStations(int count) throws Exception {
+		ChargingStation[] stations = new ChargingStation[count];
+		for (int i = 0; i < count; i++) {
+			stations[i] = new ChargingStation(i + 1, new GPSValues(10 + i * 0.01f, 10 + i * 0.01f),
+				2, 2, 2.5f, 15.0f, 1_000_000, 1_000_000);
+		}
+		return stations;
+	}
+
+	private static ArrayList<Car> createCars(int count, LocationAPI api) {
+		Random random = new Random(42);
+		ArrayList<Car> cars = new ArrayList<Car>(count);
+		for (int i = 0; i < count; i++) {
+			GPSValues gps = new GPSValues(10 + random.nextFloat() * 0.5f, 10 + random.nextFloat() * 0.5f);
+			if (random.nextBoolean()) {
+				cars.add(new ElectricCar("Electric" + i, 10, 100, 60, api, gps));
+			} else {
+				cars.add(new GasCar("Gas" + i, 10, 100, 60, api, gps));
+			}
+		}
+		return cars;
+	}
+
+	private static class CountingHandler extends Handler {
+		long records;
+
+		@Override
+		public void publish(LogRecord record) {
+			this.records++;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
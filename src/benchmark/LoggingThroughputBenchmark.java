@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import byteStream.ByteStreamHandler;
+import byteStream.OverflowPolicy;
+
+/**
+ * Publishes records from several threads into a ByteStreamHandler and
+ * compares the time the logging threads spend per record in synchronous mode
+ * with the asynchronous mode under each overflow policy, together with the
+ * records the asynchronous handler dropped.
+ * Usage: java benchmark.LoggingThroughputBenchmark [threads] [recordsPerThread] [queueSize]
+ */
+public class LoggingThroughputBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int records = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		int queueSize = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+		LogManager.getLogManager().reset();
+
+		for (int round = 0; round < 2; round++) {
+			run("sync", threads, records, false, queueSize, OverflowPolicy.block);
+			for (OverflowPolicy policy: OverflowPolicy.values()) {
+				run("async " + policy, threads, records, true, queueSize, policy);
+			}
+		}
+	}
+
+	private static void run(String name, int threads, int records, boolean async, int queueSize,
+			OverflowPolicy policy) throws IOException, InterruptedException {
+		File logFile = File.createTempFile("bytestream", ".log");
+		logFile.deleteOnExit();
+		ByteStreamHandler handler = new ByteStreamHandler(logFile.getPath(), async, queueSize,
+			ByteStreamHandler.DEFAULT_FLUSH_INTERVAL_MILLIS, policy, ByteStreamHandler.DEFAULT_SAMPLE_RATE);
+
+		Thread[] workers = new Thread[threads];
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			final int worker = t;
+			workers[t] = new Thread(() -> {
+				for (int i = 0; i < records; i++) {
+					LogRecord record = new LogRecord(Level.FINEST, "Car" + worker + " tick " + i);
+					record.setLoggerName("Car" + worker);
+					handler.publish(record);
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker: workers) {
+			worker.join();
+		}
+		long publishNanos = System.nanoTime() - start;
+		handler.close();
+		long totalNanos = System.nanoTime() - start;
+
+		long published = (long) threads * records;
+		System.out.println(String.format(
+			"%-13s publish %6.0f ns/record  until on disk %6.2f s  written %9d  dropped %9d  %5.1f MB",
+			name, (double) publishNanos / published, totalNanos / 1e9,
+			async ? handler.getWrittenRecords() : published, handler.getDroppedRecords(), logFile.length() / 1e6));
+		logFile.delete();
+	}
+}
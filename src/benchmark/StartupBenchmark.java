@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import byteStream.ByteStreamInputChargingStations;
+import byteStream.ParallelRecordLoader;
+import stations.ChargingStation;
+
+/**
+ * Loads a generated station list with the parallel chunked loader on pools
+ * of 1 up to all available cores, to show how startup scales.
+ * Usage: java benchmark.StartupBenchmark [stations]
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		File stationFile = File.createTempFile("stations", ".txt");
+		stationFile.deleteOnExit();
+		Random random = new Random(42);
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(stationFile), 1 << 20)) {
+			for (int i = 0; i < stationCount; i++) {
+				writer.write(String.format("%d %.4f %.4f %d %d 2.5 15.0 1000 1000",
+					i + 1, random.nextFloat() * 180 - 90, random.nextFloat() * 360 - 180,
+					1 + random.nextInt(4), 1 + random.nextInt(4)));
+				writer.newLine();
+			}
+		}
+		System.out.println(String.format("stations=%d  file=%.1f MB  cores=%d",
+			stationCount, stationFile.length() / 1e6, Runtime.getRuntime().availableProcessors()));
+
+		// Warm up the parser and the station constructor
+		ByteStreamInputChargingStations.getChargingStations(stationFile.getPath());
+
+		double single = 0;
+		for (int workers = 1; workers <= Runtime.getRuntime().availableProcessors(); workers *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(workers);
+			ParallelRecordLoader<ChargingStation> loader = new ParallelRecordLoader<ChargingStation>(
+				ByteStreamInputChargingStations::parseChargingStation, ChargingStation[]::new, pool);
+			long start = System.nanoTime();
+			ChargingStation[] stations = loader.load(stationFile.getPath());
+			double seconds = (System.nanoTime() - start) / 1e9;
+			pool.shutdown();
+			if (workers == 1) {
+				single = seconds;
+			}
+			System.out.println(String.format("workers=%-3d  %.2f s  %.0f stations/s  speedup=%.2fx  (last id %d)",
+				workers, seconds, stations.length / seconds, single / seconds,
+				stations[stations.length - 1].getChargingStationID()));
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import api.StationIndex;
+
+/**
+ * Compares nearest-station queries through the spatial index with the full
+ * distance computation and sort LocationAPI used to do, for 10 to 1M stations.
+ * Usage: java benchmark.StationIndexBenchmark [stationCount...]
+ */
+public class StationIndexBenchmark {
+	private static final int K = 8;
+
+	public static void main(String[] args) {
+		int[] stationCounts = {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+		if (args.length > 0) {
+			stationCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				stationCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		Random random = new Random(42);
+		for (int stationCount: stationCounts) {
+			float[] latitudes = new float[stationCount];
+			float[] longitudes = new float[stationCount];
+			for (int i = 0; i < stationCount; i++) {
+				latitudes[i] = random.nextFloat() * 180 - 90;
+				longitudes[i] = random.nextFloat() * 360 - 180;
+			}
+			int queries = Math.max(5, 1_000_000 / stationCount);
+			float[] queryLatitudes = new float[queries];
+			float[] queryLongitudes = new float[queries];
+			for (int i = 0; i < queries; i++) {
+				queryLatitudes[i] = random.nextFloat() * 180 - 90;
+				queryLongitudes[i] = random.nextFloat() * 360 - 180;
+			}
+
+			long buildStart = System.nanoTime();
+			StationIndex index = new StationIndex(latitudes, longitudes);
+			long buildNanos = System.nanoTime() - buildStart;
+
+			int[] result = new int[K];
+			long checksum = 0;
+			long indexStart = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				checksum += index.nearest(queryLatitudes[q], queryLongitudes[q], K, result);
+			}
+			double indexNanos = (double) (System.nanoTime() - indexStart) / queries;
+
+			long sortStart = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				checksum += sortAll(latitudes, longitudes, queryLatitudes[q], queryLongitudes[q])[0];
+			}
+			double sortNanos = (double) (System.nanoTime() - sortStart) / queries;
+
+			System.out.println(String.format(
+				"stations=%-8d build=%7.1f ms  sortAll=%12.0f ns/query  index=%8.0f ns/query  speedup=%8.1fx  (%d)",
+				stationCount, buildNanos / 1e6, sortNanos, indexNanos, sortNanos / indexNanos, checksum % 10
+			));
+		}
+	}
+
+	/**
+	 * The approach LocationAPI.sortNearestStation takes: distance to every
+	 * station, then a sort of all of them.
+	 */
+	private static int[] sortAll(float[] latitudes, float[] longitudes, float latitude, float longitude) {
+		int[][] totalDistance = new int[latitudes.length][2];
+		for (int i = 0; i < latitudes.length; i++) {
+			float latitudeDiff = (float) Math.pow(latitudes[i] - latitude, 2);
+			float longitudeDiff = (float) Math.pow(longitudes[i] - longitude, 2);
+			totalDistance[i][0] = i;
+			totalDistance[i][1] = (int) Math.sqrt(latitudeDiff + longitudeDiff);
+		}
+		Arrays.sort(totalDistance, Comparator.comparingInt(arr -> arr[1]));
+		return totalDistance[0];
+	}
+}
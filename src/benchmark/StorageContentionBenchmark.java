@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import stations.EnergyStorage;
+
+/**
+ * Lets many slots withdraw from one station storage at the same time until it
+ * is empty. Reports throughput and checks that exactly the stored amount was
+ * handed out. Exits with status 1 otherwise.
+ * Usage: java benchmark.StorageContentionBenchmark [slots...]
+ */
+public class StorageContentionBenchmark {
+	private static final float INITIAL_LEVEL = 1_000_000f;
+	private static final float REQUEST = 0.75f;
+	private static final float OUTPUT_PER_SECOND = 0.5f;
+
+	public static void main(String[] args) throws InterruptedException {
+		int[] slotCounts = {1, 8, 64, 256};
+		if (args.length > 0) {
+			slotCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				slotCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+		boolean exact = true;
+		for (int slotCount: slotCounts) {
+			exact &= run(slotCount);
+		}
+		if (!exact) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+	}
+
+	private static boolean run(int slotCount) throws InterruptedException {
+		EnergyStorage storage = new EnergyStorage();
+		storage.setLevel(INITIAL_LEVEL);
+		// Delivered amounts are summed in thousandths to avoid float rounding
+		AtomicLong delivered = new AtomicLong();
+		AtomicLong withdrawals = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] slots = new Thread[slotCount];
+
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				long ownDelivered = 0;
+				long ownWithdrawals = 0;
+				while (true) {
+					float amount = storage.withdraw(REQUEST, OUTPUT_PER_SECOND);
+					if (amount == 0) {
+						break;
+					}
+					ownDelivered += Math.round(amount * 1000);
+					ownWithdrawals++;
+				}
+				delivered.addAndGet(ownDelivered);
+				withdrawals.addAndGet(ownWithdrawals);
+			});
+			slots[i].start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread slot: slots) {
+			slot.join();
+		}
+		long elapsedNanos = System.nanoTime() - begin;
+
+		boolean exact = delivered.get() == (long) (INITIAL_LEVEL * 1000) && storage.isEmpty();
+		System.out.println(String.format(
+			"slots=%-4d withdrawals=%-8d time=%5d ms  %6.1f ns/withdrawal  delivered=%.3f exact=%b",
+			slotCount, withdrawals.get(), elapsedNanos / 1_000_000,
+			(double) elapsedNanos / withdrawals.get(), delivered.get() / 1000.0, exact
+		));
+		return exact;
+	}
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import api.GPSValues;
+import car.Car;
+import car.GasCar;
+import simulation.SimulationExecutor;
+
+/**
+ * Compares platform and virtual threads when running many cars at once.
+ * Every car is already charged, so it sleeps for one simulation step and
+ * leaves the map. Needs Java 21, it refuses to run without virtual threads.
+ * Usage: java benchmark.ThreadScalingBenchmark [carCount...]
+ */
+public class ThreadScalingBenchmark {
+	private static final long AWAIT_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+	public static void main(String[] args) throws Exception {
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		int[] carCounts = {1_000, 10_000, 100_000};
+		if (args.length > 0) {
+			carCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				carCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		for (int carCount: carCounts) {
+			SimulationExecutor virtual = SimulationExecutor.virtualThreads();
+			if (!virtual.isUsingVirtualThreads()) {
+				virtual.shutdown();
+				System.out.println("Virtual threads need Java 21, there is nothing to compare against.");
+				System.exit(1);
+			}
+			run("platform", SimulationExecutor.platformThreads(), carCount);
+			run("virtual", virtual, carCount);
+		}
+	}
+
+	private static void run(String name, SimulationExecutor executor, int carCount) {
+		Car[] cars = new Car[carCount];
+		for (int i = 0; i < carCount; i++) {
+			cars[i] = new GasCar("Bench" + i, 50, 50, 30, null, new GPSValues(10, 10));
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+		long start = System.nanoTime();
+		String result = "ok";
+		try {
+			for (Car car: cars) {
+				executor.executeCar(car);
+			}
+			if (!executor.awaitCars(AWAIT_TIMEOUT_MILLIS)) {
+				result = "timed out";
+			}
+		} catch (OutOfMemoryError | Exception e) {
+			result = "failed: " + e;
+		} finally {
+			executor.shutdown();
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+
+		System.out.println(String.format(
+			"%-8s cars=%-7d virtual=%-5b time=%6d ms  peakThreads=%-7d heapDelta=%5d MB  %s",
+			name, carCount, executor.isUsingVirtualThreads(), elapsedMillis,
+			threads.getPeakThreadCount(), (usedAfter - usedBefore) / (1024 * 1024), result
+		));
+	}
+}
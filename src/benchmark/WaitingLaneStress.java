@@ -0,0 +1,183 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import api.GPSValues;
+import car.Car;
+import car.CarState;
+import car.ElectricCar;
+import car.GasCar;
+import stations.ChargingSlot;
+import stations.ChargingStation;
+
+/**
+ * Hammers one charging station from hundreds of threads. Producers add their
+ * cars to the waiting queue while a twin producer adds the same cars at the
+ * same time, and cancel some of them again. Dispatchers match waiting cars to
+ * slots, and every release dispatches as well. Releasers disconnect the cars
+ * from the station's slots, so the slots are used over and over.
+ * Afterwards every car has to have either charged or left, exactly once, no
+ * car may be stuck waiting and the free slot counters have to be back at
+ * their initial values. Exits with status 1 otherwise.
+ * Usage: java benchmark.WaitingLaneStress [threads] [carsPerThread]
+ */
+public class WaitingLaneStress {
+	private static final int GAS_SLOTS = 4;
+	private static final int ELECTRIC_SLOTS = 4;
+	private static final long TIMEOUT_MILLIS = 120_000;
+
+	public static void main(String[] args) throws Exception {
+		LogManager.getLogManager().reset();
+		Logger.getLogger("").setLevel(Level.OFF);
+
+		int producerCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int carsPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int dispatcherCount = Math.max(1, producerCount / 8);
+		int releaserCount = Math.min(GAS_SLOTS + ELECTRIC_SLOTS, Math.max(1, producerCount / 8));
+		int carCount = producerCount * carsPerProducer;
+
+		ChargingStation station = new ChargingStation(1, new GPSValues(10, 10), GAS_SLOTS, ELECTRIC_SLOTS,
+			10, 10, 1e9f, 1e9f);
+		// A freed slot dispatches right away on the releasing thread, as in the discrete-event engine
+		station.setDispatchScheduler(station::dispatchWaitingCars);
+
+		Car[] cars = new Car[carCount];
+		for (int i = 0; i < carCount; i++) {
+			GPSValues gps = new GPSValues(10, 10);
+			cars[i] = (i & 1) == 0
+				? new GasCar(Integer.toString(i), 10, 50, 30, null, gps)
+				: new ElectricCar(Integer.toString(i), 10, 50, 30, null, gps);
+			cars[i].setPriorityFlag(i % 7 == 0);
+		}
+
+		// Both producers of a car count here once they added it
+		AtomicIntegerArray adds = new AtomicIntegerArray(carCount);
+		AtomicIntegerArray charged = new AtomicIntegerArray(carCount);
+		AtomicIntegerArray left = new AtomicIntegerArray(carCount);
+		AtomicInteger resolved = new AtomicInteger();
+		AtomicInteger droppedByStation = new AtomicInteger();
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int p = 0; p < producerCount; p++) {
+			int own = p * carsPerProducer;
+			int twin = ((p + 1) % producerCount) * carsPerProducer;
+			threads.add(new Thread(() -> {
+				await(start);
+				for (int j = 0; j < carsPerProducer; j++) {
+					station.addCarToWaitingQueue(cars[own + j]);
+					adds.incrementAndGet(own + j);
+					// The twin's add races with the add of its own producer
+					station.addCarToWaitingQueue(cars[twin + j]);
+					adds.incrementAndGet(twin + j);
+					// Cancel one of the own cars now and then, it may already be charging
+					if (ThreadLocalRandom.current().nextInt(4) == 0) {
+						int victim = own + ThreadLocalRandom.current().nextInt(j + 1);
+						if (adds.get(victim) == 2 && station.leaveStationWaitingQueue(cars[victim])) {
+							left.incrementAndGet(victim);
+							cars[victim].setCurrentState(CarState.leaving);
+							resolved.incrementAndGet();
+						}
+					}
+				}
+			}));
+		}
+		for (int d = 0; d < dispatcherCount; d++) {
+			threads.add(new Thread(() -> {
+				await(start);
+				while (resolved.get() < carCount && System.currentTimeMillis() < deadline) {
+					station.dispatchWaitingCars();
+					// Let the releasers run on machines with few cores
+					Thread.yield();
+				}
+			}));
+		}
+		List<ChargingSlot> slots = station.getChargingSlots();
+		for (int r = 0; r < releaserCount; r++) {
+			int first = r;
+			threads.add(new Thread(() -> {
+				await(start);
+				for (int pass = 0; resolved.get() < carCount && System.currentTimeMillis() < deadline; pass++) {
+					// Each releaser owns every releaserCount-th slot, so no car is disconnected twice
+					for (int s = first; s < slots.size(); s += releaserCount) {
+						Car car = slots.get(s).getCurrentCar();
+						if (car == null || car.getChargingSlot() != slots.get(s)) {
+							continue;
+						}
+						int i = Integer.parseInt(car.getCarNumber());
+						car.disconnectFromSlot();
+						car.setCurrentState(CarState.charged);
+						charged.incrementAndGet(i);
+						resolved.incrementAndGet();
+					}
+					// Now and then look for cars the station gave up on, see sendCarsToFreeSlots
+					if (pass % 1024 == 0) {
+						for (int i = first; i < carCount; i += releaserCount) {
+							if (cars[i].getCurrentState() == CarState.leaving && left.get(i) == 0) {
+								left.incrementAndGet(i);
+								droppedByStation.incrementAndGet();
+								resolved.incrementAndGet();
+							}
+						}
+					}
+					Thread.yield();
+				}
+			}));
+		}
+
+		long begin = System.nanoTime();
+		for (Thread thread: threads) {
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread: threads) {
+			thread.join();
+		}
+		long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+
+		int chargedCars = 0, leftCars = 0, stuck = 0, duplicated = 0;
+		for (int i = 0; i < carCount; i++) {
+			int outcomes = charged.get(i) + left.get(i);
+			if (outcomes == 0) {
+				stuck++;
+			} else if (outcomes > 1) {
+				duplicated++;
+			} else if (charged.get(i) == 1) {
+				chargedCars++;
+			} else {
+				leftCars++;
+			}
+		}
+		int freeGas = station.getAvailableGasSlots();
+		int freeElectric = station.getAvailableElectricSlots();
+		System.out.println(String.format(
+			"threads=%d cars=%d time=%d ms charged=%d left=%d (station %d) stuck=%d duplicated=%d "
+				+ "freeGas=%d/%d freeElectric=%d/%d",
+			threads.size(), carCount, elapsedMillis, chargedCars, leftCars, droppedByStation.get(), stuck, duplicated,
+			freeGas, GAS_SLOTS, freeElectric, ELECTRIC_SLOTS
+		));
+		if (stuck > 0 || duplicated > 0 || freeGas != GAS_SLOTS || freeElectric != ELECTRIC_SLOTS
+				|| station.getChargingCars() != 0) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package byteStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import exceptions.MalformedRecordException;
+
+/**
+ * Converts the text car and station lists into the binary format of
+ * BinaryListFormat. Records are copied field by field, no objects are built,
+ * so values are only checked when the binary list is loaded.
+ * Usage: java byteStream.BinaryListConverter cars|stations input.txt output.bin
+ */
+public class BinaryListConverter
+{
+	private static final byte[] GAS_CAR = "GasCar".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] ELECTRIC_CAR = "ElectricCar".getBytes(StandardCharsets.ISO_8859_1);
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3 || !(args[0].equals("cars") || args[0].equals("stations"))) {
+			System.out.println("Usage: java byteStream.BinaryListConverter cars|stations input.txt output.bin");
+			return;
+		}
+		long start = System.nanoTime();
+		int records = args[0].equals("cars") ? convertCars(args[1], args[2]) : convertStations(args[1], args[2]);
+		System.out.println(String.format("Converted %d %s in %.2f s", records, args[0], (System.nanoTime() - start) / 1e9));
+	}
+
+	public static int convertCars(String textPath, String binaryPath) throws IOException {
+		return convert(textPath, binaryPath, BinaryListFormat.KIND_CARS);
+	}
+
+	public static int convertStations(String textPath, String binaryPath) throws IOException {
+		return convert(textPath, binaryPath, BinaryListFormat.KIND_STATIONS);
+	}
+
+	private static int convert(String textPath, String binaryPath, byte kind) throws IOException {
+		RecordTokenizer fields = new RecordTokenizer();
+		ByteBuffer out = ByteBuffer.allocate(ByteStreamLineReader.DEFAULT_BUFFER_SIZE);
+		int records = 0;
+		// A failed conversion leaves the header empty, so the loader rejects the file
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(textPath);
+				FileChannel channel = FileChannel.open(Paths.get(binaryPath), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// The record count is only known at the end, the header is written last
+			channel.position(BinaryListFormat.HEADER_SIZE);
+			while (reader.nextLine()) {
+				if (reader.isBlankLine()) {
+					continue;
+				}
+				if (out.remaining() < BinaryListFormat.CAR_RECORD_SIZE) {
+					writeFully(channel, out);
+				}
+				fields.reset(reader);
+				if (kind == BinaryListFormat.KIND_CARS) {
+					putCar(fields, reader.getBuffer(), out);
+				} else {
+					putStation(fields, out);
+				}
+				records++;
+			}
+			writeFully(channel, out);
+			BinaryListFormat.writeHeader(out, kind, records);
+			out.flip();
+			long position = 0;
+			while (out.hasRemaining()) {
+				position += channel.write(out, position);
+			}
+		}
+		return records;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer out) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+
+	private static void putCar(RecordTokenizer fields, byte[] line, ByteBuffer out) throws MalformedRecordException {
+		fields.nextToken("car type");
+		byte type;
+		if (fields.tokenEquals(GAS_CAR)) {
+			type = BinaryListFormat.GAS_CAR;
+		} else if (fields.tokenEquals(ELECTRIC_CAR)) {
+			type = BinaryListFormat.ELECTRIC_CAR;
+		} else {
+			throw new MalformedRecordException("unknown car type", fields.getLineNumber(), fields.getTokenColumn());
+		}
+		out.put(type);
+		fields.nextToken("car number");
+		if (fields.getTokenLength() > BinaryListFormat.CAR_NUMBER_BYTES) {
+			throw new MalformedRecordException("car number is longer than " + BinaryListFormat.CAR_NUMBER_BYTES + " bytes",
+					fields.getLineNumber(), fields.getTokenColumn());
+		}
+		BinaryListFormat.putCarNumber(out, line, fields.getTokenStart(), fields.getTokenLength());
+		out.putFloat(fields.nextFloat("current capacity"));
+		out.putFloat(fields.nextFloat("tank capacity"));
+		out.putFloat(fields.nextFloat("wait duration"));
+		out.putFloat(fields.nextFloat("latitude"));
+		out.putFloat(fields.nextFloat("longitude"));
+		fields.expectEnd();
+	}
+
+	private static void putStation(RecordTokenizer fields, ByteBuffer out) throws MalformedRecordException {
+		out.putInt(fields.nextInt("station id"));
+		out.putFloat(fields.nextFloat("latitude"));
+		out.putFloat(fields.nextFloat("longitude"));
+		out.putInt(fields.nextInt("gas slots"));
+		out.putInt(fields.nextInt("electric slots"));
+		out.putFloat(fields.nextFloat("gas output"));
+		out.putFloat(fields.nextFloat("electricity output"));
+		out.putFloat(fields.nextFloat("electricity storage"));
+		out.putFloat(fields.nextFloat("gas storage"));
+		fields.expectEnd();
+	}
+}
@@ -0,0 +1,95 @@
+package byteStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-width binary form of the car and station lists.
+ *
+ * A file starts with a 16 byte header: magic "EVSL", format version
+ * (short), record kind (byte), a reserved byte, record count (int) and
+ * record size (int). The records follow back to back, big-endian.
+ *
+ * Car record, 52 bytes: type (byte, 0 gas, 1 electric), car number
+ * (length byte and 30 bytes ISO-8859-1), current capacity, tank capacity,
+ * wait duration, latitude, longitude (floats).
+ *
+ * Station record, 36 bytes: id (int), latitude, longitude (floats), gas
+ * slots, electric slots (ints), gas output, electricity output,
+ * electricity storage, gas storage (floats).
+ */
+public final class BinaryListFormat
+{
+	public static final int MAGIC = 0x4556534C;
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+
+	public static final byte KIND_CARS = 1;
+	public static final byte KIND_STATIONS = 2;
+
+	public static final int CAR_NUMBER_BYTES = 30;
+	public static final int CAR_RECORD_SIZE = 1 + 1 + CAR_NUMBER_BYTES + 5 * 4;
+	public static final int STATION_RECORD_SIZE = 9 * 4;
+
+	public static final byte GAS_CAR = 0;
+	public static final byte ELECTRIC_CAR = 1;
+
+	private BinaryListFormat() {
+	}
+
+	public static int recordSize(byte kind) {
+		return kind == KIND_CARS ? CAR_RECORD_SIZE : STATION_RECORD_SIZE;
+	}
+
+	public static void writeHeader(ByteBuffer buffer, byte kind, int recordCount) {
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.put(kind);
+		buffer.put((byte) 0);
+		buffer.putInt(recordCount);
+		buffer.putInt(recordSize(kind));
+	}
+
+	/**
+	 * Checks the header against the expected kind and returns the record count.
+	 */
+	public static int readHeader(ByteBuffer buffer, byte kind, long fileSize) throws IOException {
+		if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a binary list file...");
+		}
+		short version = buffer.getShort(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary list version " + version + "...");
+		}
+		if (buffer.get(6) != kind) {
+			throw new IOException("Binary list holds " + (buffer.get(6) == KIND_CARS ? "cars" : "stations") + "...");
+		}
+		int recordCount = buffer.getInt(8);
+		int recordSize = buffer.getInt(12);
+		if (recordSize != recordSize(kind) || recordCount < 0
+				|| HEADER_SIZE + (long) recordCount * recordSize > fileSize) {
+			throw new IOException("Binary list is truncated or has a wrong record size...");
+		}
+		return recordCount;
+	}
+
+	/**
+	 * Writes the car number as a length byte followed by a zero padded field.
+	 */
+	static void putCarNumber(ByteBuffer buffer, byte[] carNumber, int start, int length) {
+		buffer.put((byte) length);
+		buffer.put(carNumber, start, length);
+		for (int i = length; i < CAR_NUMBER_BYTES; i++) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	static String getCarNumber(ByteBuffer buffer, int offset, byte[] scratch) {
+		int length = Math.min(buffer.get(offset) & 0xff, CAR_NUMBER_BYTES);
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(offset + 1 + i);
+		}
+		return new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,213 @@
+package byteStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import api.GPSValues;
+import api.LocationAPI;
+import car.Car;
+import car.ElectricCar;
+import car.GasCar;
+import exceptions.InvalidGPSLatitudeException;
+import exceptions.InvalidGPSLongitudeException;
+import exceptions.InvalidGPSValueException;
+import stations.ChargingStation;
+
+/**
+ * Loads binary car and station lists written by BinaryListConverter. The
+ * file is memory-mapped and objects are built straight from the mapped
+ * records, in parallel on the common fork-join pool. Nothing is parsed.
+ * A single mapping holds up to 2 GB, about 41M cars or 59M stations.
+ */
+public class BinaryListLoader
+{
+	private static final int BUILD_BATCH = 4096;
+
+	private BinaryListLoader() {
+	}
+
+	public static ChargingStation[] loadStations(String filePath) throws IOException {
+		ByteBuffer records = map(filePath, BinaryListFormat.KIND_STATIONS);
+		int count = records.getInt(8);
+		ChargingStation[] stations = new ChargingStation[count];
+		build(count, index -> stations[index] = readStation(records, index));
+		return stations;
+	}
+
+	public static Car[] loadCars(String filePath, LocationAPI api) throws IOException {
+		ByteBuffer records = map(filePath, BinaryListFormat.KIND_CARS);
+		int count = records.getInt(8);
+		Car[] cars = new Car[count];
+		build(count, new RecordBuilder() {
+			private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[BinaryListFormat.CAR_NUMBER_BYTES]);
+
+			@Override
+			public void build(int index) throws IOException {
+				cars[index] = readCar(records, index, api, this.scratch.get());
+			}
+		});
+		return cars;
+	}
+
+	/**
+	 * Opens a binary car list for reading one car at a time, in file order.
+	 */
+	public static BinaryCarStream streamCars(String filePath, LocationAPI api) throws IOException {
+		return new BinaryCarStream(map(filePath, BinaryListFormat.KIND_CARS), api);
+	}
+
+	/**
+	 * Maps the whole file read-only and checks its header. Absolute reads on
+	 * the returned buffer are safe from several threads.
+	 */
+	private static ByteBuffer map(String filePath, byte kind) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Binary list is larger than 2 GB, split it into several files...");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			BinaryListFormat.readHeader(buffer, kind, size);
+			return buffer;
+		}
+	}
+
+	private interface RecordBuilder {
+		void build(int index) throws IOException;
+	}
+
+	private static void build(int count, RecordBuilder builder) throws IOException {
+		BuildTask task = new BuildTask(builder, 0, count);
+		ForkJoinPool.commonPool().invoke(task);
+		if (task.error != null) {
+			throw task.error;
+		}
+	}
+
+	/**
+	 * Builds a range of records, splitting it in halves down to BUILD_BATCH.
+	 */
+	private static class BuildTask extends RecursiveAction
+	{
+		private final RecordBuilder builder;
+		private final int start;
+		private final int end;
+		private IOException error;
+
+		BuildTask(RecordBuilder builder, int start, int end) {
+			this.builder = builder;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.end - this.start > BUILD_BATCH) {
+				int middle = (this.start + this.end) >>> 1;
+				BuildTask left = new BuildTask(this.builder, this.start, middle);
+				BuildTask right = new BuildTask(this.builder, middle, this.end);
+				invokeAll(left, right);
+				this.error = left.error != null ? left.error : right.error;
+				return;
+			}
+			try {
+				for (int i = this.start; i < this.end; i++) {
+					this.builder.build(i);
+				}
+			} catch (IOException e) {
+				this.error = e;
+			}
+		}
+	}
+
+	static Car readCar(ByteBuffer records, int index, LocationAPI api, byte[] scratch) throws IOException {
+		int offset = BinaryListFormat.HEADER_SIZE + index * BinaryListFormat.CAR_RECORD_SIZE;
+		byte type = records.get(offset);
+		String carNumber = BinaryListFormat.getCarNumber(records, offset + 1, scratch);
+		int values = offset + 2 + BinaryListFormat.CAR_NUMBER_BYTES;
+		float currentCapacity = records.getFloat(values);
+		float tankCapacity = records.getFloat(values + 4);
+		float waitDuration = records.getFloat(values + 8);
+		GPSValues gpsValues = new GPSValues(records.getFloat(values + 12), records.getFloat(values + 16));
+		if (type == BinaryListFormat.GAS_CAR) {
+			return new GasCar(carNumber, currentCapacity, tankCapacity, waitDuration, api, gpsValues);
+		} else if (type == BinaryListFormat.ELECTRIC_CAR) {
+			return new ElectricCar(carNumber, currentCapacity, tankCapacity, waitDuration, api, gpsValues);
+		}
+		throw new IOException("Invalid car type in record " + index + "...");
+	}
+
+	static ChargingStation readStation(ByteBuffer records, int index) throws IOException {
+		int offset = BinaryListFormat.HEADER_SIZE + index * BinaryListFormat.STATION_RECORD_SIZE;
+		try {
+			return new ChargingStation(
+				records.getInt(offset),
+				new GPSValues(records.getFloat(offset + 4), records.getFloat(offset + 8)),
+				records.getInt(offset + 12),
+				records.getInt(offset + 16),
+				records.getFloat(offset + 20),
+				records.getFloat(offset + 24),
+				records.getFloat(offset + 28),
+				records.getFloat(offset + 32));
+		} catch (InvalidGPSLatitudeException | InvalidGPSLongitudeException | InvalidGPSValueException | IllegalArgumentException e) {
+			throw new IOException("Invalid station in record " + index + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Cars of a mapped binary list, one at a time.
+	 */
+	public static class BinaryCarStream implements CarSource
+	{
+		private final ByteBuffer records;
+		private final LocationAPI api;
+		private final int count;
+		private final byte[] scratch = new byte[BinaryListFormat.CAR_NUMBER_BYTES];
+		private int next;
+		private boolean closed;
+
+		BinaryCarStream(ByteBuffer records, LocationAPI api) {
+			this.records = records;
+			this.api = api;
+			this.count = records.getInt(8);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.closed && this.next < this.count;
+		}
+
+		@Override
+		public Car next() {
+			if (!this.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				return readCar(this.records, this.next++, this.api, this.scratch);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public long getReadCars() {
+			return this.next;
+		}
+
+		/**
+		 * The mapping is released by the garbage collector.
+		 */
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+}
@@ -1,90 +1,434 @@
 package byteStream;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
 
+/**
+ * Writes log records to a file. In synchronous mode every record is written
+ * on the logging thread. In asynchronous mode publish() only puts the record
+ * into a bounded lock-free ring, and a background writer formats the records
+ * and writes them through a FileChannel in batches, at least every
+ * flushIntervalMillis. What happens when the ring is full is set by the
+ * OverflowPolicy.
+ *
+ * The file is rotated when the next write would make it larger than
+ * maxBytes or when it is older than rotateIntervalMillis. The closed
+ * segment is renamed right away and compressed on a background thread,
+ * and the oldest segments are deleted once all of them together take more
+ * than maxTotalBytes, see LogArchive. In asynchronous mode the rotation runs
+ * on the writer, so logging threads never wait for it. A file left over
+ * from an earlier run is rotated when the handler starts.
+ *
+ * The mode is read from logging.properties:
+ * byteStream.ByteStreamHandler.async, .queueSize, .flushIntervalMillis,
+ * .overflow (block, drop or sample), .sampleRate, .maxBytes,
+ * .rotateIntervalMillis, .maxTotalBytes and .compress. A maxBytes and
+ * rotateIntervalMillis of 0 turn rotation off.
+ * The source class of a record is not inferred in asynchronous mode, the
+ * configured format doesn't print it.
+ */
 public class ByteStreamHandler extends Handler
 {
-	FileOutputStream file = null;
+	public static final int DEFAULT_QUEUE_SIZE = 8192;
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+	public static final int DEFAULT_SAMPLE_RATE = 10;
+
+	private static final int BATCH_SIZE = 256 * 1024;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	FileChannel file = null;
 	Formatter formatter;
 
-    public ByteStreamHandler(String pattern) {
+	private final Path path;
+	private final long maxBytes;
+	private final long rotateIntervalMillis;
+	private final LogArchive archive;
+	private long segmentBytes;
+	private long segmentStartMillis;
+	private volatile long rotations;
+
+	private final boolean async;
+	private final long flushIntervalNanos;
+	private final OverflowPolicy overflow;
+	private final int sampleRate;
+	private final RecordRing<LogRecord> ring;
+	private final ByteBuffer batch;
+	private final Thread writer;
+	private final LongAdder droppedRecords = new LongAdder();
+	private final AtomicLong overflowingRecords = new AtomicLong();
+	private volatile long writtenRecords;
+	private volatile long flushRequests;
+	private volatile long completedFlushes;
+	private volatile boolean closing;
+	private final Object flushLock = new Object();
+
+	/**
+	 * Opens the file and takes the mode from logging.properties.
+	 */
+	public ByteStreamHandler(String pattern) {
+		this(pattern,
+			Boolean.parseBoolean(property("async", "false")),
+			Integer.parseInt(property("queueSize", String.valueOf(DEFAULT_QUEUE_SIZE))),
+			Long.parseLong(property("flushIntervalMillis", String.valueOf(DEFAULT_FLUSH_INTERVAL_MILLIS))),
+			OverflowPolicy.valueOf(property("overflow", OverflowPolicy.block.name())),
+			Integer.parseInt(property("sampleRate", String.valueOf(DEFAULT_SAMPLE_RATE))),
+			Long.parseLong(property("maxBytes", "0")),
+			Long.parseLong(property("rotateIntervalMillis", "0")),
+			Long.parseLong(property("maxTotalBytes", "0")),
+			Boolean.parseBoolean(property("compress", "true")));
+	}
+
+	/**
+	 * Opens the file without rotation.
+	 */
+	public ByteStreamHandler(String pattern, boolean async, int queueSize, long flushIntervalMillis,
+			OverflowPolicy overflow, int sampleRate) {
+		this(pattern, async, queueSize, flushIntervalMillis, overflow, sampleRate, 0, 0, 0, false);
+	}
+
+	public ByteStreamHandler(String pattern, boolean async, int queueSize, long flushIntervalMillis,
+			OverflowPolicy overflow, int sampleRate, long maxBytes, long rotateIntervalMillis,
+			long maxTotalBytes, boolean compress) {
 		// Use the formatter we have already set
-		formatter = Logger.getLogger("").getHandlers()[0].getFormatter();
-    	 try {
-    		File tempFile = new File(pattern); 
-    		if(tempFile.exists())
-    		{
-    			this.file = new FileOutputStream(pattern, true);
-    		}
-    		else 
-    		{
-				try {
-					boolean createFile = tempFile.createNewFile();
-					if(createFile)
-					{
-						this.file = new FileOutputStream(pattern, true);
-					}
-					else {
-						throw new IOException("Failed to create the file...");
-					}
-				} catch (IOException e) {
-					System.out.println("An error occurred: " + e.getMessage());
-				}
-			}
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
+		Handler[] rootHandlers = Logger.getLogger("").getHandlers();
+		this.formatter = rootHandlers.length > 0 && rootHandlers[0].getFormatter() != null
+			? rootHandlers[0].getFormatter() : new SimpleFormatter();
+		this.path = Paths.get(pattern);
+		this.maxBytes = maxBytes;
+		this.rotateIntervalMillis = rotateIntervalMillis;
+		this.archive = maxBytes > 0 || rotateIntervalMillis > 0
+			? new LogArchive(this.path, maxTotalBytes, compress) : null;
+		this.openFile();
+		if (this.archive != null && this.segmentBytes > 0) {
+			this.rotate();
+		}
+
+		this.async = async;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+		this.overflow = overflow;
+		this.sampleRate = Math.max(1, sampleRate);
+		if (async) {
+			this.ring = new RecordRing<LogRecord>(queueSize);
+			this.batch = ByteBuffer.allocate(BATCH_SIZE);
+			this.writer = new Thread(this::writeLoop, "ByteStreamHandler-writer");
+			this.writer.setDaemon(true);
+			this.writer.start();
+		} else {
+			this.ring = null;
+			this.batch = null;
+			this.writer = null;
+		}
+	}
+
+	private void openFile() {
+		try {
+			this.file = FileChannel.open(this.path,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			this.segmentBytes = this.file.size();
+		} catch (IOException e) {
 			System.out.println("An error occurred: " + e.getMessage());
 			e.printStackTrace();
+			this.file = null;
+			this.segmentBytes = 0;
 		}
-    }
+		this.segmentStartMillis = System.currentTimeMillis();
+	}
+
+	private static String property(String name, String defaultValue) {
+		String value = LogManager.getLogManager().getProperty(ByteStreamHandler.class.getName() + "." + name);
+		return value == null ? defaultValue : value.trim();
+	}
 
 	@Override
 	public Formatter getFormatter() {
-		// TODO Auto-generated method stub
 		return formatter;
 	}
 
-    @Override
-    public void close() throws SecurityException {
-    	try {
-			this.file.close();
+	public boolean isAsync() {
+		return this.async;
+	}
+
+	/**
+	 * Records that were dropped because the queue was full.
+	 */
+	public long getDroppedRecords() {
+		return this.droppedRecords.sum();
+	}
+
+	/**
+	 * Records waiting in the queue for the writer.
+	 */
+	public int getQueuedRecords() {
+		return this.async ? this.ring.size() : 0;
+	}
+
+	/**
+	 * Segments closed by rotation so far.
+	 */
+	public long getRotations() {
+		return this.rotations;
+	}
+
+	/**
+	 * Records the background writer has written so far.
+	 */
+	public long getWrittenRecords() {
+		return this.writtenRecords;
+	}
+
+	@Override
+	public void publish(LogRecord arg0)
+	{
+		if (!isLoggable(arg0)){
+			return;
+		}
+		if (!this.async) {
+			this.writeNow(arg0);
+			return;
+		}
+		if (this.closing) {
+			this.droppedRecords.increment();
+			return;
+		}
+		if (this.ring.offer(arg0)) {
+			return;
+		}
+		if (this.mustWaitForRoom(arg0)) {
+			this.waitForRoom(arg0);
+		} else {
+			this.droppedRecords.increment();
+		}
+	}
+
+	private boolean mustWaitForRoom(LogRecord record) {
+		if (this.overflow == OverflowPolicy.block || record.getLevel().intValue() >= Level.WARNING.intValue()) {
+			return true;
+		}
+		if (this.overflow == OverflowPolicy.sample) {
+			return this.overflowingRecords.getAndIncrement() % this.sampleRate == 0;
+		}
+		return false;
+	}
+
+	private void waitForRoom(LogRecord record) {
+		int spins = 0;
+		while (!this.ring.offer(record)) {
+			if (this.closing || !this.writer.isAlive()) {
+				this.droppedRecords.increment();
+				return;
+			}
+			LockSupport.unpark(this.writer);
+			if (++spins < 100) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+			}
+		}
+	}
+
+	private synchronized void writeNow(LogRecord record) {
+		byte[] logBytes = getFormatter().format(record).getBytes();
+		try {
+			this.writeFully(ByteBuffer.wrap(logBytes));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-    }
+	}
 
-	@Override
-	public void flush() {
+	/**
+	 * Writes to the active segment, rotating first if needed. Only one
+	 * thread at a time gets here, the caller of publish() in synchronous
+	 * mode and the writer in asynchronous mode.
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		if (this.archive != null && this.segmentBytes > 0 && this.isRotationDue(buffer.remaining())) {
+			this.rotate();
+		}
+		if (this.file == null) {
+			return;
+		}
+		while (buffer.hasRemaining()) {
+			this.segmentBytes += this.file.write(buffer);
+		}
+	}
+
+	private boolean isRotationDue(int nextWrite) {
+		return (this.maxBytes > 0 && this.segmentBytes + nextWrite > this.maxBytes)
+			|| (this.rotateIntervalMillis > 0 && System.currentTimeMillis() - this.segmentStartMillis >= this.rotateIntervalMillis);
+	}
+
+	/**
+	 * Closes the active segment, moves it into the archive and starts a new
+	 * one. Compression happens in the background.
+	 */
+	private void rotate() {
 		try {
-			file.flush();
-		} catch (Exception e) {
+			if (this.file != null) {
+				this.file.close();
+			}
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		
-	} 
-    
-    @Override
-    public void publish(LogRecord arg0) 
-    {
-		if (!isLoggable(arg0)){
+		Path segment = this.archive.nextSegmentPath();
+		try {
+			Files.move(this.path, segment);
+			this.archive.add(segment);
+			this.rotations++;
+		} catch (IOException e) {
+			// Keep writing to the old file, it is retried after the next segment
+			e.printStackTrace();
+		}
+		this.openFile();
+		this.segmentBytes = 0;
+	}
+
+	/**
+	 * Drains the ring into the batch buffer and writes the batch when it is
+	 * full, when the flush interval is over or when flush() asked for it.
+	 */
+	private void writeLoop() {
+		long lastWrite = System.nanoTime();
+		long written = 0;
+		while (true) {
+			long requested = this.flushRequests;
+			boolean closing = this.closing;
+			LogRecord record;
+			while ((record = this.ring.poll()) != null) {
+				this.append(record);
+				written++;
+			}
+			long now = System.nanoTime();
+			boolean flushDue = requested != this.completedFlushes || closing || now - lastWrite >= this.flushIntervalNanos;
+			if (flushDue) {
+				this.writeBatch();
+				this.writtenRecords = written;
+				lastWrite = now;
+				if (requested != this.completedFlushes) {
+					synchronized (this.flushLock) {
+						this.completedFlushes = requested;
+						this.flushLock.notifyAll();
+					}
+				}
+			}
+			if (closing && this.ring.size() == 0) {
+				return;
+			}
+			if (this.ring.size() == 0) {
+				long untilFlush = this.flushIntervalNanos - (System.nanoTime() - lastWrite);
+				LockSupport.parkNanos(Math.max(1, Math.min(untilFlush, IDLE_PARK_NANOS)));
+			}
+		}
+	}
+
+	private void append(LogRecord record) {
+		byte[] logBytes;
+		try {
+			logBytes = getFormatter().format(record).getBytes();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
 			return;
 		}
-        byte[] logBytes = getFormatter().format(arg0).getBytes();
-    	try {
-	    	file.write(logBytes);
+		if (logBytes.length > this.batch.remaining()) {
+			this.writeBatch();
+		}
+		if (logBytes.length > this.batch.remaining()) {
+			try {
+				this.writeFully(ByteBuffer.wrap(logBytes));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return;
+		}
+		this.batch.put(logBytes);
+	}
+
+	private void writeBatch() {
+		if (this.batch.position() == 0) {
+			return;
+		}
+		this.batch.flip();
+		try {
+			this.writeFully(this.batch);
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
-    	finally {
-    		flush();
-    	}
-    }
-}
\ No newline at end of file
+		this.batch.clear();
+	}
+
+	/**
+	 * In asynchronous mode, waits until every record published before the
+	 * call has been written.
+	 */
+	@Override
+	public void flush() {
+		if (!this.async) {
+			return;
+		}
+		synchronized (this.flushLock) {
+			long target = ++this.flushRequests;
+			LockSupport.unpark(this.writer);
+			while (this.completedFlushes < target && this.writer.isAlive()) {
+				try {
+					this.flushLock.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				LockSupport.unpark(this.writer);
+			}
+		}
+	}
+
+	/**
+	 * Writes what is still queued and closes the file.
+	 */
+	@Override
+	public void close() throws SecurityException {
+		if (this.async && !this.closing) {
+			this.closing = true;
+			LockSupport.unpark(this.writer);
+			try {
+				this.writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (!this.writer.isAlive()) {
+				// Records that raced with closing, the writer is gone so this thread may poll
+				LogRecord record;
+				while ((record = this.ring.poll()) != null) {
+					this.append(record);
+				}
+				this.writeBatch();
+			}
+		}
+		synchronized (this) {
+			try {
+				if (this.file != null) {
+					this.file.close();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (this.archive != null) {
+			this.archive.close();
+		}
+	}
+}
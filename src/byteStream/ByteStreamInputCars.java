@@ -1,25 +1,29 @@
 package byteStream;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import api.GPSValues;
 import api.LocationAPI;
 import car.*;
+import exceptions.MalformedRecordException;
 
 /**
- * 
+ * Loads the list of cars. One car per line:
+ * type carNumber currentCapacity tankCapacity waitDuration latitude longitude
  */
 public class ByteStreamInputCars 
 {
-	private String gasOrElectricCar;
-	private String carNumber;
-	private float currentCapacity;
-	private float tankCapacity;
-	private float waitDuration;
-	private LocationAPI api;
-	private GPSValues gpsValues;
-	
+	private static final int INITIAL_CAPACITY = 64;
+	static final long PARALLEL_THRESHOLD = 8L << 20;
+	private static final byte[] GAS_CAR = "GasCar".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] ELECTRIC_CAR = "ElectricCar".getBytes(StandardCharsets.ISO_8859_1);
+
+	private final RecordTokenizer tokenizer = new RecordTokenizer();
+
 	Car[] listCars;
 	
 	public Car[] getListCars() {
@@ -28,158 +32,76 @@ public class ByteStreamInputCars
 	private void setListCars(Car[] listCars) {
 		this.listCars = listCars;
 	}
-	
-	
-	public String getGasOrElectricCar() {
-		return gasOrElectricCar;
-	}
-	private void setGasOrElectricCar(String gasOrElectricCar) {
-		this.gasOrElectricCar = gasOrElectricCar;
-	}
-	public String getCarNumber() {
-		return this.carNumber;
-	}
-	private void setCarNumber(String carNumber) {
-		this.carNumber = carNumber;
-	}
-	public float getCurrentCapacity() {
-		return currentCapacity;
-	}
-	private void setCurrentCapacity(float currentCapacity) {
-		this.currentCapacity = currentCapacity;
-	}
-	public float getTankCapacity() {
-		return tankCapacity;
-	}
-	private void setTankCapacity(float tankCapacity) {
-		this.tankCapacity = tankCapacity;
-	}
-	public float getWaitDuration() {
-		return waitDuration;
-	}
-	private void setWaitDuration(float waitDuration) {
-		this.waitDuration = waitDuration;
-	}
-	public LocationAPI getApi() {
-		return api;
-	}
-	private void setApi(LocationAPI api) {
-		this.api = api;
-	}
-	public GPSValues getGpsValues() {
-		return gpsValues;
-	}
-	private void setGpsValues(GPSValues gpsValues) {
-		this.gpsValues = gpsValues;
-	}
-	
+
 	/*
-	 * 
+	 * Reads the file in a single pass and grows the list of cars as needed.
+	 * Files larger than PARALLEL_THRESHOLD are parsed in parallel chunks instead.
 	 */
 	public void carsInputByteStream(String filePath, LocationAPI api) throws IOException
 	{
+		if (Files.size(Paths.get(filePath)) > PARALLEL_THRESHOLD) {
+			ParallelRecordLoader<Car> loader = new ParallelRecordLoader<Car>(fields -> parseCar(fields, api), Car[]::new);
+			setListCars(loader.load(filePath));
+			return;
+		}
+		Car[] cars = new Car[INITIAL_CAPACITY];
 		int indexArray = 0;
-		int byteData = 0;
-		int carsCounter = 0;
-		char recorveredParameterCharTemp;
-		try (FileInputStream reader = new FileInputStream(filePath)) {
-			while((byteData = reader.read()) != -1)
-			{
-				recorveredParameterCharTemp = (char)byteData;
-				if(recorveredParameterCharTemp == '\n')
-				{
-					carsCounter++;
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(filePath)) {
+			while (reader.nextLine()) {
+				if (reader.isBlankLine()) {
+					continue;
+				}
+				if (indexArray == cars.length) {
+					cars = Arrays.copyOf(cars, cars.length * 2);
 				}
+				cars[indexArray++] = this.parseCar(reader, api);
 			}
-			// carsCounter++;
-			/* Reader needs a reset, so we can go to the beginning of the file again */
-			reader.close();
-			Car[] cars = new Car[carsCounter++];
-			/* If object was created correctly, move to obtain the information */
-			StringBuilder recoverText = new StringBuilder();
-			String recorveredParameterString;
-			try {
-				/* Reset object reader to the beginning of the file */
-				FileInputStream readerTemp = new FileInputStream(filePath);
-				byteData = 0;
-				while((byteData = readerTemp.read()) != -1)
-				{	
-					char recorveredParameterChar = (char)byteData;
-					if(recorveredParameterChar == '\n')
-					{
-						Car tempCar;
-						recorveredParameterString = recoverText.toString();
-						String[] recorveredParameterStrings = recorveredParameterString.split(" ");
-						
-						setGasOrElectricCar(recorveredParameterStrings[0]);
-						setCarNumber(recorveredParameterStrings[1]);
-						setCurrentCapacity(Float.parseFloat(recorveredParameterStrings[2]));
-						setTankCapacity(Float.parseFloat(recorveredParameterStrings[3]));
-						setWaitDuration(Float.parseFloat(recorveredParameterStrings[4]));
-						setGpsValues(new GPSValues(Float.parseFloat(recorveredParameterStrings[5]), Float.parseFloat(recorveredParameterStrings[6])));
-
-						if(getGasOrElectricCar().equals("GasCar"))
-						{
-							tempCar = new GasCar(getCarNumber(), getCurrentCapacity(), getTankCapacity(), getWaitDuration(), api, getGpsValues());
-
-						}
-						else if(getGasOrElectricCar().equals("ElectricCar")) {
-							tempCar = new ElectricCar(getCarNumber(), getCurrentCapacity(), getTankCapacity(), getWaitDuration(), api, getGpsValues());
+		}
+		setListCars(Arrays.copyOf(cars, indexArray));
+	}
 
-						}
-						else
-						{
-							throw new IOException("Invalid Data Type...");
-						}
-						
-						cars[indexArray] = tempCar;
-						recoverText = new StringBuilder(); 
-						/* Update index until the value matches the created items */
-						indexArray++;
-					}
-					else {
-						recoverText.append(recorveredParameterChar);
-					}
-				}
-				if(recoverText.length() > 0)
-				{
-					Car tempCar;
-					recorveredParameterString = recoverText.toString();
-					String[] recorveredParameterStrings = recorveredParameterString.split(" ");
-					
-					setGasOrElectricCar(recorveredParameterStrings[0]);
-					setCarNumber(recorveredParameterStrings[1]);
-					setCurrentCapacity(Float.parseFloat(recorveredParameterStrings[2]));
-					setTankCapacity(Float.parseFloat(recorveredParameterStrings[3]));
-					setWaitDuration(Float.parseFloat(recorveredParameterStrings[4]));
-					setGpsValues(new GPSValues(Float.parseFloat(recorveredParameterStrings[5]), Float.parseFloat(recorveredParameterStrings[6])));
+	/**
+	 * Parses the current line of the reader.
+	 */
+	Car parseCar(ByteStreamLineReader reader, LocationAPI api) throws MalformedRecordException
+	{
+		this.tokenizer.reset(reader);
+		return parseCar(this.tokenizer, api);
+	}
 
-					if(getGasOrElectricCar().equals("GasCar"))
-					{
-						tempCar = new GasCar(getCarNumber(), getCurrentCapacity(), getTankCapacity(), getWaitDuration(), api, getGpsValues());
+	/**
+	 * Parses the line the tokenizer was reset to.
+	 */
+	public static Car parseCar(RecordTokenizer fields, LocationAPI api) throws MalformedRecordException
+	{
+		fields.nextToken("car type");
+		boolean gasCar = fields.tokenEquals(GAS_CAR);
+		if (!gasCar && !fields.tokenEquals(ELECTRIC_CAR)) {
+			throw new MalformedRecordException("unknown car type", fields.getLineNumber(), fields.getTokenColumn());
+		}
+		String carNumber = fields.nextString("car number");
+		float currentCapacity = fields.nextFloat("current capacity");
+		float tankCapacity = fields.nextFloat("tank capacity");
+		float waitDuration = fields.nextFloat("wait duration");
+		float latitude = fields.nextFloat("latitude");
+		float longitude = fields.nextFloat("longitude");
+		fields.expectEnd();
 
-					}
-					else if(getGasOrElectricCar().equals("ElectricCar")) {
-						tempCar = new ElectricCar(getCarNumber(), getCurrentCapacity(), getTankCapacity(), getWaitDuration(), api, getGpsValues());
+		GPSValues gpsValues = new GPSValues(latitude, longitude);
+		if (gasCar) {
+			return new GasCar(carNumber, currentCapacity, tankCapacity, waitDuration, api, gpsValues);
+		}
+		return new ElectricCar(carNumber, currentCapacity, tankCapacity, waitDuration, api, gpsValues);
+	}
 
-					}
-					else
-					{
-						throw new IOException("Invalid Data Type...");
-					}
-					
-					cars[indexArray] = tempCar;
-					recoverText = new StringBuilder(); 
-				}
-				setListCars(cars);
+	/**
+	 * Opens the list of cars for reading one car at a time, see CarStream.
+	 */
+	public static CarStream streamCars(String filePath, LocationAPI api) throws IOException
+	{
+		return new CarStream(filePath, api);
+	}
 
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		} catch (Exception e) {
-			System.out.println("An error occurred: " + e.getMessage());
-		}
-	}	
 	public static Car[] getCars(String filePath, LocationAPI api)
 	{
 		ByteStreamInputCars objectByteStreamInput = new ByteStreamInputCars();
@@ -1,26 +1,31 @@
 package byteStream;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 import api.GPSValues;
 import api.LocationAPI;
+import exceptions.InvalidGPSLatitudeException;
+import exceptions.InvalidGPSLongitudeException;
+import exceptions.InvalidGPSValueException;
+import exceptions.MalformedRecordException;
 import stations.ChargingStation;
 
 /**
- * 
+ * Loads the list of charging stations. One station per line:
+ * id latitude longitude gasSlots electricSlots gasOutput electricityOutput
+ * electricityStorage gasStorage
  */
 public class ByteStreamInputChargingStations 
 {
-	private int chargingStationID;
-	private GPSValues gpsValues;
-	private int numGasSlots;
-	private int numElectricSlots;
-	private float gasOutputPerSecondoutputPerSecond;
-	private float electricityOutputPerSecond;
-	private float levelOfGasStorage;
-	private float levelOfElectricityStorage;
-	
+	private static final int INITIAL_CAPACITY = 16;
+	// Station lines are built slowly, so a smaller file pays off already
+	static final long PARALLEL_THRESHOLD = 1L << 20;
+
+	private final RecordTokenizer tokenizer = new RecordTokenizer();
+
 	ChargingStation[] listStations;
 	
 	public ChargingStation[] getListStations() {
@@ -31,154 +36,63 @@ public class ByteStreamInputChargingStations
 		this.listStations = listStations;
 	}
 
-	public int getChargingStationID() {
-		return chargingStationID;
-	}
-
-	private void setChargingStationID(int chargingStationID) {
-		this.chargingStationID = chargingStationID;
-	}
-
-	public GPSValues getGpsValues() {
-		return gpsValues;
-	}
-
-	private void setGpsValues(GPSValues gpsValues) {
-		this.gpsValues = gpsValues;
-	}
-
-	public int getNumGasSlots() {
-		return numGasSlots;
-	}
-
-	private void setNumGasSlots(int numGasSlots) {
-		this.numGasSlots = numGasSlots;
-	}
-
-	public int getNumElectricSlots() {
-		return numElectricSlots;
-	}
-
-	private void setNumElectricSlots(int numElectricSlots) {
-		this.numElectricSlots = numElectricSlots;
-	}
-
-	public float getGasOutputPerSecondoutputPerSecond() {
-		return gasOutputPerSecondoutputPerSecond;
-	}
-
-	private void setGasOutputPerSecondoutputPerSecond(float gasOutputPerSecondoutputPerSecond) {
-		this.gasOutputPerSecondoutputPerSecond = gasOutputPerSecondoutputPerSecond;
-	}
-
-	public float getElectricityOutputPerSecond() {
-		return electricityOutputPerSecond;
-	}
-
-	private void setElectricityOutputPerSecond(float electricityOutputPerSecond) {
-		this.electricityOutputPerSecond = electricityOutputPerSecond;
-	}
-
-	private void setLevelOfElectricityStorage(float LevelOfElectricityStorage) {
-		this.levelOfElectricityStorage = LevelOfElectricityStorage;
-	}
-
-	private void setLevelOfGasStorage(float LevelOfGasStorage) {
-		this.levelOfGasStorage = LevelOfGasStorage;
-	}
-
-	private float getLevelOfElectricityStorage() {
-		return this.levelOfElectricityStorage;
-	}
-
-	private float getLevelOfGasStorage() {
-		return this.levelOfGasStorage;
-	}
-
-
 	/*
-	 * 
+	 * Reads the file in a single pass and grows the list of stations as needed.
+	 * Files larger than PARALLEL_THRESHOLD are parsed and their stations built
+	 * in parallel chunks instead.
 	 */
 	public void chargingStationsInputByteStream(String filePath) throws IOException
 	{
+		if (Files.size(Paths.get(filePath)) > PARALLEL_THRESHOLD) {
+			ParallelRecordLoader<ChargingStation> loader = new ParallelRecordLoader<ChargingStation>(
+					ByteStreamInputChargingStations::parseChargingStation, ChargingStation[]::new);
+			setListStations(loader.load(filePath));
+			return;
+		}
+		ChargingStation[] stations = new ChargingStation[INITIAL_CAPACITY];
 		int indexArray = 0;
-		int byteData = 0;
-		int stationsCounter = 0;
-		char recorveredParameterCharTemp;
-		try (FileInputStream reader = new FileInputStream(filePath)) {
-			while((byteData = reader.read()) != -1)
-			{
-				recorveredParameterCharTemp = (char)byteData;
-				if(recorveredParameterCharTemp == '\n')
-				{
-					stationsCounter++;
-				}
-			}
-			// stationsCounter++;
-			/* Reader needs a reset, so we can go to the beginning of the file again */
-			reader.close();
-			ChargingStation[] stations = new ChargingStation[stationsCounter++];
-			/* If object was created correctly, move to obtain the information */
-			StringBuilder recoverText = new StringBuilder();
-			String recorveredParameterString;
-			try {
-				/* Reset object reader to the beginning of the file */
-				FileInputStream readerTemp = new FileInputStream(filePath);
-				byteData = 0;
-				while((byteData = readerTemp.read()) != -1)
-				{	
-					char recorveredParameterChar = (char)byteData;
-					if(recorveredParameterChar == '\n')
-					{
-						recorveredParameterString = recoverText.toString();
-						String[] recorveredParameterStrings = recorveredParameterString.split(" ");
-						
-						setChargingStationID(Integer.parseInt(recorveredParameterStrings[0]));
-						setGpsValues(new GPSValues(Float.parseFloat(recorveredParameterStrings[1]), Float.parseFloat(recorveredParameterStrings[2])));
-						setNumGasSlots(Integer.parseInt(recorveredParameterStrings[3]));
-						setNumElectricSlots(Integer.parseInt(recorveredParameterStrings[4]));
-						setGasOutputPerSecondoutputPerSecond(Float.parseFloat(recorveredParameterStrings[5]));
-						setElectricityOutputPerSecond(Float.parseFloat(recorveredParameterStrings[6]));
-						setLevelOfElectricityStorage(Float.parseFloat(recorveredParameterStrings[7]));
-						setLevelOfGasStorage(Float.parseFloat(recorveredParameterStrings[8]));
-						ChargingStation tempStation = new ChargingStation(getChargingStationID(), getGpsValues(), getNumGasSlots(), getNumElectricSlots(), getGasOutputPerSecondoutputPerSecond(), getElectricityOutputPerSecond(), getLevelOfElectricityStorage(), getLevelOfGasStorage());
-						
-						stations[indexArray] = tempStation;
-						recoverText = new StringBuilder(); 
-						/* Update index until the value matches the created items */
-						indexArray++;
-					}
-					else {
-						recoverText.append(recorveredParameterChar);
-					}
+		try (ByteStreamLineReader reader = new ByteStreamLineReader(filePath)) {
+			while (reader.nextLine()) {
+				if (reader.isBlankLine()) {
+					continue;
 				}
-				if(recoverText.length() > 0)
-				{
-					recorveredParameterString = recoverText.toString();
-					String[] recorveredParameterStrings = recorveredParameterString.split(" ");
-					
-					setChargingStationID(Integer.parseInt(recorveredParameterStrings[0]));
-					setGpsValues(new GPSValues(Float.parseFloat(recorveredParameterStrings[1]), Float.parseFloat(recorveredParameterStrings[2])));
-					setNumGasSlots(Integer.parseInt(recorveredParameterStrings[3]));
-					setNumElectricSlots(Integer.parseInt(recorveredParameterStrings[4]));
-					setGasOutputPerSecondoutputPerSecond(Float.parseFloat(recorveredParameterStrings[5]));
-					setElectricityOutputPerSecond(Float.parseFloat(recorveredParameterStrings[6]));
-					ChargingStation tempStation = new ChargingStation(getChargingStationID(), getGpsValues(), getNumGasSlots(), getNumElectricSlots(), getGasOutputPerSecondoutputPerSecond(), getElectricityOutputPerSecond(), getLevelOfElectricityStorage(), getLevelOfGasStorage());
-					
-					stations[indexArray] = tempStation;
-					recoverText = new StringBuilder(); 
+				if (indexArray == stations.length) {
+					stations = Arrays.copyOf(stations, stations.length * 2);
 				}
-				setListStations(stations);
-
-			} catch (Exception e) {
-				System.out.println("End of File reached " + e.getMessage());
-				throw new Exception("Invalid data type...");
+				this.tokenizer.reset(reader);
+				stations[indexArray++] = parseChargingStation(this.tokenizer);
 			}
-		} catch (Exception e) {
-			System.out.println("An error occurred: " + e.getMessage());
-			throw new IOException("Failed to open the file...");
 		}
-	}	
+		setListStations(Arrays.copyOf(stations, indexArray));
+	}
+
+	/**
+	 * Parses the line the tokenizer was reset to.
+	 */
+	public static ChargingStation parseChargingStation(RecordTokenizer fields) throws MalformedRecordException
+	{
+		int chargingStationID = fields.nextInt("station id");
+		float latitude = fields.nextFloat("latitude");
+		int gpsColumn = fields.getTokenColumn();
+		float longitude = fields.nextFloat("longitude");
+		int numGasSlots = fields.nextInt("gas slots");
+		int slotsColumn = fields.getTokenColumn();
+		int numElectricSlots = fields.nextInt("electric slots");
+		float gasOutputPerSecond = fields.nextFloat("gas output");
+		float electricityOutputPerSecond = fields.nextFloat("electricity output");
+		float levelOfElectricityStorage = fields.nextFloat("electricity storage");
+		float levelOfGasStorage = fields.nextFloat("gas storage");
+		fields.expectEnd();
+
+		try {
+			return new ChargingStation(chargingStationID, new GPSValues(latitude, longitude), numGasSlots, numElectricSlots, gasOutputPerSecond, electricityOutputPerSecond, levelOfElectricityStorage, levelOfGasStorage);
+		} catch (InvalidGPSLatitudeException | InvalidGPSLongitudeException | InvalidGPSValueException e) {
+			throw new MalformedRecordException("invalid GPS values", fields.getLineNumber(), gpsColumn, e);
+		} catch (IllegalArgumentException e) {
+			throw new MalformedRecordException(e.getMessage(), fields.getLineNumber(), slotsColumn, e);
+		}
+	}
+
 	public static ChargingStation[] getChargingStations(String filePath)
 	{
 		ByteStreamInputChargingStations objectByteStreamInput = new ByteStreamInputChargingStations();
@@ -195,19 +109,20 @@ public class ByteStreamInputChargingStations
 	
 	public void printChargingStations()
 	{
-		ByteStreamInputChargingStations objectByteStreamInput = new ByteStreamInputChargingStations();
-		ChargingStation[] tempChargingStations = objectByteStreamInput.getListStations();
+		ChargingStation[] tempChargingStations = this.getListStations();
 		LocationAPI.printArray(tempChargingStations);
 		
-        System.out.println("Charging Station ID: " + objectByteStreamInput.getChargingStationID());
-        System.out.println("Latitude: " + objectByteStreamInput.getGpsValues().getLatitude());
-        System.out.println("Longitude: " + objectByteStreamInput.getGpsValues().getLongitude());
-        System.out.println("Gas Slots: " + objectByteStreamInput.getNumGasSlots());
-        System.out.println("Electric Slots: " + objectByteStreamInput.getNumElectricSlots());
-        System.out.println("Gas Output: " + objectByteStreamInput.getGasOutputPerSecondoutputPerSecond());
-        System.out.println("Electric Output: " + objectByteStreamInput.getElectricityOutputPerSecond());
-        System.out.println("Electric Storage: " + objectByteStreamInput.getLevelOfElectricityStorage());
-		System.out.println("Gas Storage: " + objectByteStreamInput.getLevelOfGasStorage());
-		System.out.println();
+		for (ChargingStation station: tempChargingStations) {
+	        System.out.println("Charging Station ID: " + station.getChargingStationID());
+	        System.out.println("Latitude: " + station.getGPSValues().getLatitude());
+	        System.out.println("Longitude: " + station.getGPSValues().getLongitude());
+	        System.out.println("Free Gas Slots: " + station.getAvailableGasSlots());
+	        System.out.println("Free Electric Slots: " + station.getAvailableElectricSlots());
+	        System.out.println("Gas Output: " + station.getGasOutputPerSecond());
+	        System.out.println("Electric Output: " + station.getElectricityOutputPerSecond());
+	        System.out.println("Electric Storage: " + station.getLevelOfElectricityStorage());
+			System.out.println("Gas Storage: " + station.getLevelOfGasStorage());
+			System.out.println();
+		}
 	}
 }
@@ -0,0 +1,163 @@
+package byteStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a text file once through a large buffer and hands it out line by
+ * line. A line is a byte range of getBuffer() that stays valid until the
+ * next call of nextLine(). Carriage returns before a newline are dropped,
+ * and the last line doesn't need a newline.
+ * A reader can also cover just a byte range of a shared channel, which is
+ * how ParallelRecordLoader reads its chunks.
+ */
+public class ByteStreamLineReader implements Closeable
+{
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final boolean ownsChannel;
+	private long filePosition;
+	private final long fileEnd;
+	private byte[] buffer;
+	private ByteBuffer byteBuffer;
+	private int position;
+	private int limit;
+	private boolean endOfFile;
+	private int lineStart;
+	private int lineEnd;
+	private long lineNumber;
+
+	public ByteStreamLineReader(String filePath) throws IOException {
+		this(filePath, DEFAULT_BUFFER_SIZE);
+	}
+
+	public ByteStreamLineReader(String filePath, int bufferSize) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+		this.ownsChannel = true;
+		this.filePosition = 0;
+		this.fileEnd = Long.MAX_VALUE;
+		this.buffer = new byte[bufferSize];
+		this.byteBuffer = ByteBuffer.wrap(this.buffer);
+	}
+
+	/**
+	 * Reads the bytes from start to end of the channel with positional reads,
+	 * so several readers can share it. The channel stays open on close().
+	 */
+	public ByteStreamLineReader(FileChannel channel, long start, long end, int bufferSize) {
+		this.channel = channel;
+		this.ownsChannel = false;
+		this.filePosition = start;
+		this.fileEnd = end;
+		this.buffer = new byte[bufferSize];
+		this.byteBuffer = ByteBuffer.wrap(this.buffer);
+	}
+
+	/**
+	 * Moves to the next line. Returns false at the end of the file.
+	 */
+	public boolean nextLine() throws IOException {
+		while (true) {
+			for (int i = this.position; i < this.limit; i++) {
+				if (this.buffer[i] == '\n') {
+					this.setLine(this.position, i);
+					this.position = i + 1;
+					return true;
+				}
+			}
+			if (this.endOfFile) {
+				if (this.position < this.limit) {
+					this.setLine(this.position, this.limit);
+					this.position = this.limit;
+					return true;
+				}
+				return false;
+			}
+			this.fill();
+		}
+	}
+
+	/**
+	 * Moves the unread rest to the front of the buffer and reads behind it,
+	 * growing the buffer if a single line doesn't fit.
+	 */
+	private void fill() throws IOException {
+		int remaining = this.limit - this.position;
+		if (remaining == this.buffer.length) {
+			byte[] grown = new byte[this.buffer.length * 2];
+			System.arraycopy(this.buffer, this.position, grown, 0, remaining);
+			this.buffer = grown;
+			this.byteBuffer = ByteBuffer.wrap(grown);
+		} else if (remaining > 0) {
+			System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+		}
+		this.position = 0;
+		this.limit = remaining;
+		this.byteBuffer.clear().position(remaining);
+		long rangeLeft = this.fileEnd - this.filePosition;
+		if (rangeLeft < this.byteBuffer.remaining()) {
+			this.byteBuffer.limit(remaining + (int) rangeLeft);
+		}
+		int read = rangeLeft <= 0 ? -1 : this.channel.read(this.byteBuffer, this.filePosition);
+		if (read < 0) {
+			this.endOfFile = true;
+		} else {
+			this.limit += read;
+			this.filePosition += read;
+		}
+	}
+
+	private void setLine(int start, int end) {
+		if (end > start && this.buffer[end - 1] == '\r') {
+			end--;
+		}
+		this.lineStart = start;
+		this.lineEnd = end;
+		this.lineNumber++;
+	}
+
+	public byte[] getBuffer() {
+		return this.buffer;
+	}
+
+	public int getLineStart() {
+		return this.lineStart;
+	}
+
+	public int getLineEnd() {
+		return this.lineEnd;
+	}
+
+	/**
+	 * Returns the 1-based number of the current line.
+	 */
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	public boolean isBlankLine() {
+		for (int i = this.lineStart; i < this.lineEnd; i++) {
+			if (this.buffer[i] != ' ' && this.buffer[i] != '\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getLine() {
+		return new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.ownsChannel) {
+			this.channel.close();
+		}
+	}
+}
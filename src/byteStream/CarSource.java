@@ -0,0 +1,17 @@
+package byteStream;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import car.Car;
+
+/**
+ * Cars read one at a time from a list file, see CarStream and BinaryCarStream.
+ */
+public interface CarSource extends Iterator<Car>, Closeable
+{
+	/**
+	 * Returns how many cars were handed out so far.
+	 */
+	long getReadCars();
+}
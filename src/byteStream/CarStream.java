@@ -0,0 +1,85 @@
+package byteStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+import api.LocationAPI;
+import car.Car;
+
+/**
+ * Reads the list of cars lazily. Every call of next() parses one more line,
+ * so cars can be deployed while the rest of the file is still unread and
+ * only the read buffer is held in memory. The file is closed when the last
+ * car has been read, or by close().
+ * Read and parse errors are thrown as UncheckedIOException.
+ */
+public class CarStream implements CarSource
+{
+	private final ByteStreamLineReader reader;
+	private final ByteStreamInputCars parser = new ByteStreamInputCars();
+	private final LocationAPI api;
+	private Car nextCar;
+	private boolean closed;
+	private long readCars;
+
+	public CarStream(String filePath, LocationAPI api) throws IOException {
+		this.reader = new ByteStreamLineReader(filePath);
+		this.api = api;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.nextCar != null) {
+			return true;
+		}
+		if (this.closed) {
+			return false;
+		}
+		try {
+			while (this.reader.nextLine()) {
+				if (!this.reader.isBlankLine()) {
+					this.nextCar = this.parser.parseCar(this.reader, this.api);
+					return true;
+				}
+			}
+			this.close();
+			return false;
+		} catch (IOException e) {
+			this.closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Car next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Car car = this.nextCar;
+		this.nextCar = null;
+		this.readCars++;
+		return car;
+	}
+
+	@Override
+	public long getReadCars() {
+		return this.readCars;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			this.reader.close();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			this.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package byteStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The closed segments of a rotated log. A segment is renamed to
+ * name-yyyyMMdd-HHmmss-NNNN.ext next to the active file, then compressed to
+ * .gz on a background thread. After each segment the oldest archives are
+ * deleted until all of them together fit into maxTotalBytes.
+ */
+class LogArchive
+{
+	private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+	private final Path directory;
+	private final String baseName;
+	private final String extension;
+	private final long maxTotalBytes;
+	private final boolean compress;
+	private final ExecutorService compressor;
+	private final SimpleDateFormat timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss");
+	private int sequence = 0;
+
+	/**
+	 * A maxTotalBytes of 0 keeps every archive.
+	 */
+	LogArchive(Path activeFile, long maxTotalBytes, boolean compress) {
+		Path parent = activeFile.toAbsolutePath().getParent();
+		String fileName = activeFile.getFileName().toString();
+		int dot = fileName.lastIndexOf('.');
+		this.directory = parent;
+		this.baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+		this.extension = dot > 0 ? fileName.substring(dot) : "";
+		this.maxTotalBytes = maxTotalBytes;
+		this.compress = compress;
+		this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ByteStreamHandler-compressor");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns a name for the next segment that isn't taken yet. Only the
+	 * thread that rotates calls this.
+	 */
+	Path nextSegmentPath() {
+		String time = this.timestamp.format(new Date());
+		while (true) {
+			String name = String.format("%s-%s-%04d%s", this.baseName, time, this.sequence++ % 10000, this.extension);
+			Path segment = this.directory.resolve(name);
+			if (!Files.exists(segment) && !Files.exists(segment.resolveSibling(name + ".gz"))) {
+				return segment;
+			}
+		}
+	}
+
+	/**
+	 * Compresses the closed segment and applies the retention cap in the
+	 * background.
+	 */
+	void add(Path segment) {
+		try {
+			this.compressor.execute(() -> {
+				if (this.compress) {
+					this.compress(segment);
+				}
+				this.applyRetention();
+			});
+		} catch (RejectedExecutionException e) {
+			// Closed already, the segment stays uncompressed
+		}
+	}
+
+	private void compress(Path segment) {
+		Path compressed = segment.resolveSibling(segment.getFileName() + ".gz");
+		Path partial = segment.resolveSibling(segment.getFileName() + ".gz.tmp");
+		try {
+			try (InputStream in = Files.newInputStream(segment);
+					OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+				in.transferTo(out);
+			}
+			Files.move(partial, compressed, StandardCopyOption.ATOMIC_MOVE);
+			Files.delete(segment);
+		} catch (IOException e) {
+			e.printStackTrace();
+			try {
+				Files.deleteIfExists(partial);
+			} catch (IOException ignored) {
+				// Nothing left to do, the uncompressed segment is kept
+			}
+		}
+	}
+
+	/**
+	 * Deletes the oldest archives until the rest fits into maxTotalBytes.
+	 * The timestamp in the names makes name order the age order.
+	 */
+	private void applyRetention() {
+		if (this.maxTotalBytes <= 0) {
+			return;
+		}
+		ArrayList<Path> archives = new ArrayList<Path>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, this.baseName + "-*")) {
+			for (Path file: files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(this.extension) || name.endsWith(this.extension + ".gz")) {
+					archives.add(file);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		Collections.sort(archives);
+		long total = 0;
+		long[] sizes = new long[archives.size()];
+		for (int i = 0; i < archives.size(); i++) {
+			try {
+				sizes[i] = Files.size(archives.get(i));
+			} catch (IOException e) {
+				sizes[i] = 0;
+			}
+			total += sizes[i];
+		}
+		for (int i = 0; i < archives.size() && total > this.maxTotalBytes; i++) {
+			try {
+				Files.deleteIfExists(archives.get(i));
+				total -= sizes[i];
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Waits for the segments that are still being compressed.
+	 */
+	void close() {
+		this.compressor.shutdown();
+		try {
+			this.compressor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
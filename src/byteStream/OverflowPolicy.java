@@ -0,0 +1,21 @@
+package byteStream;
+
+/**
+ * What an asynchronous ByteStreamHandler does with a record when its queue
+ * is full. Records at WARNING and above are never dropped.
+ */
+public enum OverflowPolicy {
+	/**
+	 * The logging thread waits until the writer made room.
+	 */
+	block,
+	/**
+	 * The record is dropped and counted.
+	 */
+	drop,
+	/**
+	 * One of every sampleRate overflowing records waits for room like with
+	 * block, the others are dropped, so the log keeps a sample of the burst.
+	 */
+	sample
+}
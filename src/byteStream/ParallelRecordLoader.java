@@ -0,0 +1,172 @@
+package byteStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+import exceptions.MalformedRecordException;
+
+/**
+ * Loads a list file in parallel. The file is cut into chunks that end on a
+ * newline, every chunk is parsed and its objects are built on a fork-join
+ * pool, and the results are put back together in file order.
+ * Errors report the line number within the whole file.
+ */
+public class ParallelRecordLoader<T>
+{
+	/**
+	 * Builds one object from the line a tokenizer was reset to.
+	 */
+	public interface RecordParser<T> {
+		T parse(RecordTokenizer fields) throws MalformedRecordException;
+	}
+
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final int CHUNKS_PER_WORKER = 4;
+	private static final int ALIGN_WINDOW = 4096;
+
+	private final RecordParser<T> parser;
+	private final IntFunction<T[]> arrayFactory;
+	private final ForkJoinPool pool;
+
+	public ParallelRecordLoader(RecordParser<T> parser, IntFunction<T[]> arrayFactory) {
+		this(parser, arrayFactory, ForkJoinPool.commonPool());
+	}
+
+	public ParallelRecordLoader(RecordParser<T> parser, IntFunction<T[]> arrayFactory, ForkJoinPool pool) {
+		this.parser = parser;
+		this.arrayFactory = arrayFactory;
+		this.pool = pool;
+	}
+
+	public T[] load(String filePath) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+			long[] bounds = this.splitIntoChunks(channel);
+			List<ChunkTask> tasks = new ArrayList<ChunkTask>(bounds.length - 1);
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1]));
+			}
+			this.pool.invoke(new RecursiveTask<Void>() {
+				@Override
+				protected Void compute() {
+					ForkJoinTask.invokeAll(tasks);
+					return null;
+				}
+			});
+			return this.merge(tasks);
+		}
+	}
+
+	/**
+	 * Returns the chunk boundaries. Every boundary but the first and the last
+	 * is the position right after a newline.
+	 */
+	private long[] splitIntoChunks(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int chunks = (int) Math.max(1, Math.min(size / MIN_CHUNK_SIZE, (long) this.pool.getParallelism() * CHUNKS_PER_WORKER));
+		long[] bounds = new long[chunks + 1];
+		int count = 1;
+		ByteBuffer window = ByteBuffer.allocate(ALIGN_WINDOW);
+		for (int i = 1; i < chunks; i++) {
+			long boundary = this.nextLineStart(channel, Math.max(size * i / chunks, bounds[count - 1]), window);
+			if (boundary > bounds[count - 1] && boundary < size) {
+				bounds[count++] = boundary;
+			}
+		}
+		bounds[count++] = size;
+		long[] result = new long[count];
+		System.arraycopy(bounds, 0, result, 0, count);
+		return result;
+	}
+
+	private long nextLineStart(FileChannel channel, long position, ByteBuffer window) throws IOException {
+		while (true) {
+			window.clear();
+			int read = channel.read(window, position);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				if (window.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+	}
+
+	private T[] merge(List<ChunkTask> tasks) throws IOException {
+		int total = 0;
+		long lineOffset = 0;
+		for (ChunkTask task: tasks) {
+			if (task.error != null) {
+				throw this.relocate(task.error, lineOffset);
+			}
+			total += task.records.size();
+			lineOffset += task.lines;
+		}
+		T[] result = this.arrayFactory.apply(total);
+		int index = 0;
+		for (ChunkTask task: tasks) {
+			for (T record: task.records) {
+				result[index++] = record;
+			}
+		}
+		return result;
+	}
+
+	private IOException relocate(IOException error, long lineOffset) {
+		if (error instanceof MalformedRecordException) {
+			MalformedRecordException malformed = (MalformedRecordException) error;
+			return new MalformedRecordException(malformed.getProblem(), lineOffset + malformed.getLineNumber(),
+					malformed.getColumn(), malformed.getCause());
+		}
+		return error;
+	}
+
+	private class ChunkTask extends RecursiveTask<Void>
+	{
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final List<T> records = new ArrayList<T>();
+		private long lines;
+		private IOException error;
+
+		ChunkTask(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Void compute() {
+			int bufferSize = (int) Math.min(ByteStreamLineReader.DEFAULT_BUFFER_SIZE, Math.max(ALIGN_WINDOW, this.end - this.start));
+			RecordTokenizer fields = new RecordTokenizer();
+			try (ByteStreamLineReader reader = new ByteStreamLineReader(this.channel, this.start, this.end, bufferSize)) {
+				while (reader.nextLine()) {
+					if (reader.isBlankLine()) {
+						continue;
+					}
+					fields.reset(reader);
+					this.records.add(ParallelRecordLoader.this.parser.parse(fields));
+				}
+				this.lines = reader.getLineNumber();
+			} catch (IOException e) {
+				this.error = e;
+			} catch (UncheckedIOException e) {
+				this.error = e.getCause();
+			}
+			return null;
+		}
+	}
+}
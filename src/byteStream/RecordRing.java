@@ -0,0 +1,77 @@
+package byteStream;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring for many producers and one consumer. Every slot
+ * carries a sequence number that tells producers and the consumer whose
+ * turn it is, so offer() only contends on a single CAS of the tail.
+ */
+class RecordRing<E>
+{
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * The capacity is rounded up to a power of two.
+	 */
+	RecordRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.elements = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Adds an element, returns false if the ring is full.
+	 */
+	boolean offer(E element) {
+		while (true) {
+			long position = this.tail.get();
+			int index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.elements.lazySet(index, element);
+					this.sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest element, returns null if the ring is empty. Only
+	 * one thread may call this.
+	 */
+	E poll() {
+		long position = this.head.get();
+		int index = (int) position & this.mask;
+		if (this.sequences.get(index) != position + 1) {
+			return null;
+		}
+		E element = this.elements.get(index);
+		this.elements.lazySet(index, null);
+		this.head.lazySet(position + 1);
+		this.sequences.set(index, position + this.mask + 1);
+		return element;
+	}
+
+	int size() {
+		return (int) Math.max(0, this.tail.get() - this.head.get());
+	}
+
+	int capacity() {
+		return this.mask + 1;
+	}
+}
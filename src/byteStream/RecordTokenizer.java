@@ -0,0 +1,249 @@
+package byteStream;
+
+import java.nio.charset.StandardCharsets;
+
+import exceptions.MalformedRecordException;
+
+/**
+ * Splits a line of an input list into space separated fields and parses
+ * them straight from the byte buffer, without creating strings.
+ * Malformed fields are reported with their line and column.
+ */
+public class RecordTokenizer
+{
+	private static final double[] POWERS_OF_TEN = new double[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private byte[] buffer;
+	private int lineStart;
+	private int position;
+	private int end;
+	private long lineNumber;
+	private int tokenStart;
+	private int tokenEnd;
+
+	/**
+	 * Starts on the current line of the reader.
+	 */
+	public void reset(ByteStreamLineReader reader) {
+		this.reset(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), reader.getLineNumber());
+	}
+
+	public void reset(byte[] buffer, int start, int end, long lineNumber) {
+		this.buffer = buffer;
+		this.lineStart = start;
+		this.position = start;
+		this.end = end;
+		this.lineNumber = lineNumber;
+		this.tokenStart = start;
+		this.tokenEnd = start;
+	}
+
+	/**
+	 * Moves to the next field. Throws if the line has no more fields.
+	 */
+	public void nextToken(String fieldName) throws MalformedRecordException {
+		byte[] buffer = this.buffer;
+		int end = this.end;
+		int position = this.position;
+		while (position < end && isSeparator(buffer[position])) {
+			position++;
+		}
+		if (position == end) {
+			this.position = position;
+			throw this.missing(fieldName);
+		}
+		this.tokenStart = position;
+		while (position < end && !isSeparator(buffer[position])) {
+			position++;
+		}
+		this.tokenEnd = position;
+		this.position = position;
+	}
+
+	/**
+	 * Throws if anything but separators is left on the line.
+	 */
+	public void expectEnd() throws MalformedRecordException {
+		while (this.position < this.end && isSeparator(this.buffer[this.position])) {
+			this.position++;
+		}
+		if (this.position != this.end) {
+			throw new MalformedRecordException("unexpected field", this.lineNumber, this.column(this.position));
+		}
+	}
+
+	/**
+	 * True if the current field is exactly the given ASCII text.
+	 */
+	public boolean tokenEquals(byte[] text) {
+		if (this.tokenEnd - this.tokenStart != text.length) {
+			return false;
+		}
+		for (int i = 0; i < text.length; i++) {
+			if (this.buffer[this.tokenStart + i] != text[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getTokenStart() {
+		return this.tokenStart;
+	}
+
+	public int getTokenLength() {
+		return this.tokenEnd - this.tokenStart;
+	}
+
+	public String tokenString() {
+		return new String(this.buffer, this.tokenStart, this.tokenEnd - this.tokenStart, StandardCharsets.ISO_8859_1);
+	}
+
+	public String nextString(String fieldName) throws MalformedRecordException {
+		this.nextToken(fieldName);
+		return this.tokenString();
+	}
+
+	public int nextInt(String fieldName) throws MalformedRecordException {
+		this.nextToken(fieldName);
+		int i = this.tokenStart;
+		boolean negative = false;
+		if (this.buffer[i] == '-' || this.buffer[i] == '+') {
+			negative = this.buffer[i] == '-';
+			i++;
+		}
+		if (i == this.tokenEnd) {
+			throw this.malformed(fieldName, " is not an integer");
+		}
+		long value = 0;
+		for (; i < this.tokenEnd; i++) {
+			int digit = this.buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw this.malformed(fieldName, " is not an integer");
+			}
+			value = value * 10 + digit;
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw this.malformed(fieldName, " is out of range");
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw this.malformed(fieldName, " is out of range");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses plain decimals like -12.5 directly. Exponents and more than 15
+	 * digits are rare and go through Float.parseFloat. Non-finite values such
+	 * as NaN or Infinity are rejected.
+	 *
+	 * With at most 15 digits the mantissa and the power of ten are exact
+	 * doubles, so the division is correctly rounded to a double. Rounding
+	 * that double to a float again gives the same result as Float.parseFloat
+	 * unless it lies exactly halfway between two floats, or is too small for
+	 * a normal float, and those cases go through Float.parseFloat as well.
+	 */
+	public float nextFloat(String fieldName) throws MalformedRecordException {
+		this.nextToken(fieldName);
+		byte[] buffer = this.buffer;
+		int tokenEnd = this.tokenEnd;
+		int i = this.tokenStart;
+		boolean negative = false;
+		if (buffer[i] == '-' || buffer[i] == '+') {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		for (; i < tokenEnd; i++) {
+			byte b = buffer[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (fraction) {
+					fractionDigits++;
+				}
+			} else if (b == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (i < tokenEnd || digits > 15) {
+			return this.parseFloatSlow(fieldName);
+		}
+		if (digits == 0) {
+			throw this.malformed(fieldName, " is not a number");
+		}
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		if (isFloatMidpoint(value) || (value != 0 && value < Float.MIN_NORMAL)) {
+			return this.parseFloatSlow(fieldName);
+		}
+		return (float) (negative ? -value : value);
+	}
+
+	private float parseFloatSlow(String fieldName) throws MalformedRecordException {
+		float value;
+		try {
+			value = Float.parseFloat(this.tokenString());
+		} catch (NumberFormatException e) {
+			throw this.malformed(fieldName, " is not a number", e);
+		}
+		if (!Float.isFinite(value)) {
+			throw this.malformed(fieldName, " is not a finite number");
+		}
+		return value;
+	}
+
+	/**
+	 * True if the double is exactly halfway between two adjacent floats, i.e.
+	 * the 29 mantissa bits a float drops are a single leading one.
+	 */
+	private static boolean isFloatMidpoint(double value) {
+		return (Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L;
+	}
+
+	// Errors are built outside of the parse methods to keep those small enough to inline
+	private MalformedRecordException missing(String fieldName) {
+		return new MalformedRecordException("missing " + fieldName, this.lineNumber, this.column(this.position));
+	}
+
+	private MalformedRecordException malformed(String fieldName, String problem) {
+		return new MalformedRecordException(fieldName + problem, this.lineNumber, this.column(this.tokenStart));
+	}
+
+	private MalformedRecordException malformed(String fieldName, String problem, Throwable cause) {
+		return new MalformedRecordException(fieldName + problem, this.lineNumber, this.column(this.tokenStart), cause);
+	}
+
+	/**
+	 * Returns the 1-based column of a buffer position in the current line.
+	 */
+	public int column(int bufferPosition) {
+		return bufferPosition - this.lineStart + 1;
+	}
+
+	/**
+	 * Column of the current field, for errors raised by the caller.
+	 */
+	public int getTokenColumn() {
+		return this.column(this.tokenStart);
+	}
+
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t';
+	}
+}
@@ -4,36 +4,43 @@ import api.GPSValues;
 import api.LocationAPI;
 import annotations.Readonly;
 
-import java.util.logging.Logger;
+import java.util.logging.Level;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
 import annotations.APIMethod;
 import annotations.Mutable;
+import exceptions.ChargingSlotFullException;
 import exceptions.ChargingStationNotFoundException;
-import exceptions.InvalidGPSValueException;
+import logging.EventJournal;
+import logging.SimLogger;
+import simulation.SimulationClock;
 import stations.ChargingSlot;
 import stations.ChargingStation;
 
 public abstract class Car implements Runnable{
 
 	protected String carNumber;
+	private final int journalId;
 	private float currentCapacity;
 	private float tankCapacity;
 	private float maximumWaitingDuration; // the maximum accepted waiting duration for the car
 	private LocalDateTime enterStationTime; // time when the car entered the queue and is set to wait.
+	private long enterStationMillis;
 	protected LocationAPI api;
 	protected GPSValues currentGPS;
 	private ChargingStation chargingStationWaitingQueue;
-	private ChargingSlot chargingSlot;
-	private CarState currentState;
+	private volatile ChargingSlot chargingSlot;
+	private volatile CarState currentState;
 	private boolean priorityFlag;
-	private Logger logger;
+	private SimLogger logger;
+	private ChargingStation[] bestStation = new ChargingStation[1];
 
 	public Car(String carNumber, float currentCapacity, float tankCapacity, float waitDuration, LocationAPI api,
 			GPSValues currentGPS) {
 		this.carNumber = carNumber;
-		this.logger = Logger.getLogger(this.toString());
+		this.journalId = EventJournal.register(carNumber);
+		this.logger = SimLogger.getLogger(Car.class, this);
 		this.currentCapacity = currentCapacity;
 		this.tankCapacity = tankCapacity;
 		this.maximumWaitingDuration = waitDuration;
@@ -45,7 +52,6 @@ public abstract class Car implements Runnable{
 			this.setCurrentState(CarState.charged);
 		}
 		this.priorityFlag = false;
-		this.logger = Logger.getLogger(this.toString());
 	}
 
 	@Override
@@ -55,7 +61,18 @@ public abstract class Car implements Runnable{
 	
 	public void setEnterStationTime()
 	{
-		this.enterStationTime = LocalDateTime.now();
+		this.enterStationTime = SimulationClock.now();
+		this.enterStationMillis = SimulationClock.millis();
+	}
+
+	/**
+	 * Returns the SimulationClock millis at which the car entered the queue,
+	 * see SimClock.millis().
+	 */
+	@Readonly
+	public long getEnterStationMillis()
+	{
+		return this.enterStationMillis;
 	}
 	
 	public LocalDateTime getEnterStationTime()
@@ -73,6 +90,11 @@ public abstract class Car implements Runnable{
 		return this.currentCapacity;
 	}
 
+	@Readonly
+	public CarState getCurrentState() {
+		return this.currentState;
+	}
+
 	@Readonly
 	public ChargingStation getChargingStationWaitingQueue(){
 		return this.chargingStationWaitingQueue;
@@ -84,20 +106,23 @@ public abstract class Car implements Runnable{
 		this.chargingStationWaitingQueue = station;
 	}
 
+	/**
+	 * Leaves the waiting queue. Returns false if the station already picked
+	 * the car for a slot, in which case the car stays.
+	 */
 	@Mutable
-	public void leaveChargingStationWaitingQueue() {
-		this.chargingStationWaitingQueue.leaveStationWaitingQueue(this);
+	public boolean leaveChargingStationWaitingQueue() {
+		if (!this.chargingStationWaitingQueue.leaveStationWaitingQueue(this)) {
+			return false;
+		}
 		this.chargingStationWaitingQueue = null;
+		return true;
 	}
 
 	@Mutable
-	public void setCharginSlot(ChargingSlot slot){
+	public void setCharginSlot(ChargingSlot slot) throws ChargingSlotFullException {
+		slot.setCarToSlot(this);
 		this.chargingSlot = slot;
-		try{
-			slot.setCarToSlot(this);
-		} catch (Exception e){
-			this.logger.severe("Please handle the error 111");
-		}
 	}
 
 	@Mutable
@@ -110,6 +135,14 @@ public abstract class Car implements Runnable{
 	@Readonly
 	abstract public float getChargingTime(ChargingStation station);
 
+	/**
+	 * Returns the id the car has in the EventJournal.
+	 */
+	@Readonly
+	public int getJournalId() {
+		return this.journalId;
+	}
+
 	@Readonly
 	public String getCarNumber() {
 		return carNumber;
@@ -142,8 +175,12 @@ public abstract class Car implements Runnable{
 
 	@Mutable
 	public void setCurrentState(CarState newState) {
-		this.logger.info("Updating state to " + newState);
+		this.logger.log(Level.INFO, "Updating state to %s", newState);
 		this.currentState = newState;
+		EventJournal journal = EventJournal.get();
+		if (journal != null) {
+			journal.carState(this.journalId, newState);
+		}
 	}
 
 	public boolean isPriority() {
@@ -155,39 +192,21 @@ public abstract class Car implements Runnable{
 	}
 
 	/**
-	 * This method should return the nearest charging station based on the following
-	 * criteria and order: - Location of the station (nearest is better) - Waiting
-	 * time (station's waiting time should be lower than car's waiting time) -
-	 * Station's capacity (station should have enough fuel left for this car)
+	 * This method should return the best charging station for the car. Stations
+	 * are ranked by distance plus their waiting time, and only stations whose
+	 * waiting time is lower than the car's maximum waiting duration qualify.
 	 */
 	@Readonly
 	@APIMethod
 	public ChargingStation getNearestFreeChargingStation() throws ChargingStationNotFoundException {
-		// Getting the nearest station from the LocationAPI
+		// Getting the best station for this car from the LocationAPI
 		this.logger.finer("Finding nearest charging station...");
-		ChargingStation[] nearestStations;
-		try {
-			nearestStations = LocationAPI.calculateNearestStation(currentGPS, api.getChargingStation(), this);
-		} catch (InvalidGPSValueException e) {
-			throw new ChargingStationNotFoundException(
-					"Car: " + carNumber + "; LocationAPI returned no close stations.");
-		}
-
-		// Checking if it returned any stations. Throwing exception when not
-		if (nearestStations.length == 0) {
-			throw new ChargingStationNotFoundException(
-					"Car: " + carNumber + "; LocationAPI returned no close stations.");
-		}
-
-		// Iterating over the found stations and checking for empty slots and if the
-		// type is matching
-		for (int i = 0; i < nearestStations.length; i++) {
-			ChargingStation currentStation = nearestStations[i];
-			if (currentStation == null) {
-				continue;
-			}
-			this.logger.finest(nearestStations[i].toString() + " is a match.");
-			return nearestStations[i];
+		int found = api.findBestStations(currentGPS, this.getFuelType(), this.getMaximumWaitingDuration(), 1, this.bestStation);
+		if (found > 0) {
+			ChargingStation station = this.bestStation[0];
+			this.bestStation[0] = null;
+			this.logger.log(Level.FINEST, "%s is a match.", station);
+			return station;
 		}
 
 		throw new ChargingStationNotFoundException("Car: " + carNumber + " could not find a free station.");
@@ -199,15 +218,14 @@ public abstract class Car implements Runnable{
 		if (this.currentCapacity > this.tankCapacity){
 			this.currentCapacity = this.tankCapacity;
 		}
-		this.logger.finer(
-			String.format(
-				"Received: %f fuel. Current Capacity: %f - Tank capacity: %f",
-				amount, this.currentCapacity, this.tankCapacity
-			)
+		this.logger.log(Level.FINER,
+			"Received: %f fuel. Current Capacity: %f - Tank capacity: %f",
+			amount, this.currentCapacity, this.tankCapacity
 		);
 	}
 
-	public abstract boolean isStationWaitingTimeWithinRange(ChargingStation station);
+	@Readonly
+	public abstract FuelType getFuelType();
 
 	/**
 	 * Returns the amount of fuel that is missing until the tank is full
@@ -217,66 +235,74 @@ public abstract class Car implements Runnable{
 		return tankCapacity - currentCapacity;
 	}
 
+	/**
+	 * Executes a single simulation step of the car.
+	 * Returns false once the car has left the map.
+	 */
+	@Mutable
+	public boolean step() throws Exception {
+		logger.log(Level.INFO, "Current state: %s", this.currentState);
+		switch (this.currentState.toString()) {
+			case "looking":
+				try {
+					ChargingStation suitableStation = this.getNearestFreeChargingStation();
+					if (suitableStation == null){
+						throw new Exception("suitableStation is null !!!");
+					}
+					this.setChargingStationWaitingQueue(suitableStation);
+					// logger.fine("Joined " + suitableStation.toString() + " Queue");
+				} catch (ChargingStationNotFoundException e) {
+					// No station has a waiting time within the car's maximum
+					this.logger.info("Couldn't find a charging station with a short enough queue");
+					this.setCurrentState(CarState.leaving);
+				}
+				break;
+
+			case "inQueue":
+				Duration timeDifference = Duration.between(this.getEnterStationTime(), SimulationClock.now());
+				if(timeDifference.toSeconds() > 15)
+				{
+					if (this.leaveChargingStationWaitingQueue()) {
+						this.logger.info("Waited longer than 15 minutes, leave the station");
+						this.setCurrentState(CarState.leaving);
+					}
+				}
+				break;
+
+			case "charging":
+				int remaining = (int) this.getMissingAmountOfFuel();
+				if (remaining <= 0){
+					this.setCurrentState(CarState.charged);
+					this.disconnectFromSlot();
+				}
+				break;
+
+			case "charged":
+				this.logger.info("Car is fully charged. leaving the map");
+				return false;
+
+			case "leaving":
+				this.logger.info("Car couldn't find a suitable charging station and is leaving the map");
+				return false;
+
+			default:
+				this.logger.severe("This line shouldn't have been printed");
+				break;
+		}
+		return true;
+	}
+
 	@Override
 	public void run() {
 		while (true) {
 			try{
-				Thread.sleep(1000);
-				logger.info("Current state: " + this.currentState);
-				switch (this.currentState.toString()) {
-					case "looking":
-						try {
-							ChargingStation suitableStation = this.getNearestFreeChargingStation();
-							if (suitableStation == null){
-								throw new Exception("suitableStation is null !!!");
-							}
-							if (!this.isStationWaitingTimeWithinRange(suitableStation)){
-									this.logger.info(
-										String.format("The station %s has a waiting time longer than 15 minutes", suitableStation.toString())
-									);
-									this.logger.info("Couldn't find a charging station with a queue shorter than 15 minutes");
-									this.setCurrentState(CarState.leaving);
-									break;
-							} else {
-								this.setChargingStationWaitingQueue(suitableStation);
-							}
-							// logger.fine("Joined " + suitableStation.toString() + " Queue");
-						} catch (ChargingStationNotFoundException e) {
-							logger.severe("No charging station found.");
-						}						
-						break;
-						
-					case "inQueue":
-						Duration timeDifference = Duration.between(this.getEnterStationTime(), LocalDateTime.now());
-						if(timeDifference.toSeconds() > 15)
-						{
-							this.logger.info("Waited longer than 15 minutes, leave the station");
-							this.leaveChargingStationWaitingQueue();
-							this.setCurrentState(CarState.leaving);
-						} 
-						break;
-
-					case "charging":
-						int remaining = (int) this.getMissingAmountOfFuel();
-						if (remaining <= 0){
-							this.setCurrentState(CarState.charged);
-							this.disconnectFromSlot();
-						}
-						break;
-						
-					case "charged":
-						this.logger.info("Car is fully charged. leaving the map");
-						return;
-						
-					case "leaving":
-						this.logger.info("Car couldn't find a suitable charging station and is leaving the map");
-						return;
-				
-					default:
-						this.logger.severe("This line shouldn't have been printed");
-						break;
+				SimulationClock.sleep(1000);
+				if (!this.step()) {
+					return;
 				}
-
+			} catch (InterruptedException e){
+				this.logger.fine("Interrupted, stopping car thread.");
+				return;
 			} catch(Exception e){
 				e.printStackTrace();
 			}
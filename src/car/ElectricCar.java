@@ -14,9 +14,8 @@ public class ElectricCar extends Car {
 
 	@Override
 	@Readonly
-	public boolean isStationWaitingTimeWithinRange(ChargingStation station) {
-		float waitingDuration = station.getExpectedWaitingTimeForElectricCars();
-		return waitingDuration < this.getMaximumWaitingDuration();
+	public FuelType getFuelType() {
+		return FuelType.electric;
 	}
 
 	@Override
@@ -0,0 +1,6 @@
+package car;
+
+public enum FuelType {
+	gas,
+	electric
+}
@@ -14,9 +14,8 @@ public class GasCar extends Car
 
 	@Override
 	@Readonly
-	public boolean isStationWaitingTimeWithinRange(ChargingStation station) {
-		float waitingDuration = station.getExpectedWaitingTimeForGasCars();
-		return waitingDuration < this.getMaximumWaitingDuration();
+	public FuelType getFuelType() {
+		return FuelType.gas;
 	}
 
 	@Override
@@ -0,0 +1,42 @@
+package exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a line of an input list can't be parsed.
+ * Line and column are 1-based, the column points at the offending field.
+ */
+public class MalformedRecordException extends IOException {
+    private final String problem;
+    private final long lineNumber;
+    private final int column;
+
+    public MalformedRecordException (String message, long lineNumber, int column) {
+        super ("line " + lineNumber + ", column " + column + ": " + message);
+        this.problem = message;
+        this.lineNumber = lineNumber;
+        this.column = column;
+    }
+
+    public MalformedRecordException (String message, long lineNumber, int column, Throwable cause) {
+        super ("line " + lineNumber + ", column " + column + ": " + message, cause);
+        this.problem = message;
+        this.lineNumber = lineNumber;
+        this.column = column;
+    }
+
+    /**
+     * Returns the message without line and column.
+     */
+    public String getProblem() {
+        return this.problem;
+    }
+
+    public long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+}
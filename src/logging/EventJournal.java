@@ -0,0 +1,208 @@
+package logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import car.CarState;
+import simulation.SimulationClock;
+import stations.EnergyState;
+
+/**
+ * Binary journal of the simulation events, for analysis after the run.
+ *
+ * The file starts with a 16 byte header: magic "EVJL", format version
+ * (short), a reserved short, the record size (int) and a reserved int.
+ * Every event is a 16 byte record, big-endian: simulated time in
+ * milliseconds as an offset to the last timeBase record (int), event type
+ * code (byte), detail (byte), a reserved short, subject (int) and target
+ * (int), which holds the float bits of the amount for energy deliveries.
+ * See JournalEventType for what detail, subject and target hold.
+ *
+ * Cars and slots are stored by an entity id that register() hands out
+ * when they are created, so two cars with the same number stay apart and
+ * the journal doesn't have to remember any names. register() also writes
+ * a name record with the id as subject and the byte length in the
+ * reserved short, followed by the UTF-8 name padded to whole records.
+ * Entities created while there is no journal show up by id only.
+ * Stations are stored by their station id.
+ *
+ * Records are collected in a buffer and written through a FileChannel
+ * when it is full. The journal the simulation writes to is set with
+ * set(), hooks do nothing while there is none.
+ */
+public class EventJournal implements Closeable
+{
+	public static final int MAGIC = 0x45564A4C;
+	public static final short VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 16;
+	public static final int NO_TARGET = -1;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static volatile EventJournal current = null;
+	private static final AtomicInteger nextEntityId = new AtomicInteger();
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private long timeBase = 0;
+	private boolean hasTimeBase = false;
+	private long records = 0;
+	private boolean failed = false;
+
+	public EventJournal(String path) throws IOException {
+		this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer.putInt(MAGIC);
+		this.buffer.putShort(VERSION);
+		this.buffer.putShort((short) 0);
+		this.buffer.putInt(RECORD_SIZE);
+		this.buffer.putInt(0);
+	}
+
+	/**
+	 * Returns the journal the simulation writes to, or null.
+	 */
+	public static EventJournal get() {
+		return current;
+	}
+
+	public static void set(EventJournal journal) {
+		current = journal;
+	}
+
+	/**
+	 * Returns a new entity id for a car or slot and names it in the current
+	 * journal, if there is one.
+	 */
+	public static int register(String name) {
+		int id = nextEntityId.getAndIncrement();
+		EventJournal journal = current;
+		if (journal != null) {
+			journal.name(id, name);
+		}
+		return id;
+	}
+
+	public synchronized void carState(int car, CarState state) {
+		this.append(JournalEventType.carState, state.ordinal(), car, NO_TARGET);
+	}
+
+	public synchronized void queueEnter(int car, int stationId) {
+		this.append(JournalEventType.queueEnter, 0, car, stationId);
+	}
+
+	public synchronized void queueLeave(int car, int stationId, boolean toSlot) {
+		this.append(JournalEventType.queueLeave, toSlot ? 1 : 0, car, stationId);
+	}
+
+	public synchronized void slotAttach(int car, int slot) {
+		this.append(JournalEventType.slotAttach, 0, car, slot);
+	}
+
+	public synchronized void slotDetach(int car, int slot) {
+		this.append(JournalEventType.slotDetach, 0, car, slot);
+	}
+
+	public synchronized void energyDelivered(int car, float amount) {
+		this.append(JournalEventType.energyDelivered, 0, car, Float.floatToRawIntBits(amount));
+	}
+
+	public synchronized void sourceSwitch(int stationId, EnergyState source) {
+		this.append(JournalEventType.sourceSwitch, source.ordinal(), stationId, NO_TARGET);
+	}
+
+	/**
+	 * Returns the number of event records written so far, name records not counted.
+	 */
+	public synchronized long getRecords() {
+		return this.records;
+	}
+
+	/**
+	 * Writes a name record for the entity id.
+	 */
+	public synchronized void name(int id, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, Short.MAX_VALUE);
+		int padded = (length + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+		this.reserve(RECORD_SIZE + padded);
+		this.buffer.putInt(0);
+		this.buffer.put(JournalEventType.name.getCode());
+		this.buffer.put((byte) 0);
+		this.buffer.putShort((short) length);
+		this.buffer.putInt(id);
+		this.buffer.putInt(NO_TARGET);
+		this.buffer.put(bytes, 0, length);
+		for (int i = length; i < padded; i++) {
+			this.buffer.put((byte) 0);
+		}
+	}
+
+	private void append(JournalEventType type, int detail, int subject, int target) {
+		long time = SimulationClock.millis();
+		long offset = time - this.timeBase;
+		if (!this.hasTimeBase || offset < 0 || offset > Integer.MAX_VALUE) {
+			// Also covers a switch to another clock, e.g. when the engine starts
+			this.timeBase = time;
+			this.hasTimeBase = true;
+			offset = 0;
+			this.put(JournalEventType.timeBase, 0, (int) (time >>> 32), (int) time, 0);
+		}
+		this.put(type, detail, subject, target, (int) offset);
+		this.records++;
+	}
+
+	private void put(JournalEventType type, int detail, int subject, int target, int offset) {
+		this.reserve(RECORD_SIZE);
+		this.buffer.putInt(offset);
+		this.buffer.put(type.getCode());
+		this.buffer.put((byte) detail);
+		this.buffer.putShort((short) 0);
+		this.buffer.putInt(subject);
+		this.buffer.putInt(target);
+	}
+
+	/**
+	 * Makes room for the given number of bytes, writing the buffer out if
+	 * needed. Names longer than the buffer are cut by name() beforehand.
+	 */
+	private void reserve(int bytes) {
+		if (this.buffer.remaining() < bytes) {
+			this.writeBuffer();
+		}
+	}
+
+	private void writeBuffer() {
+		this.buffer.flip();
+		try {
+			while (this.buffer.hasRemaining() && !this.failed) {
+				this.channel.write(this.buffer);
+			}
+		} catch (IOException e) {
+			// The simulation goes on without the journal
+			this.failed = true;
+			e.printStackTrace();
+		}
+		this.buffer.clear();
+	}
+
+	public synchronized void flush() {
+		this.writeBuffer();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (current == this) {
+			current = null;
+		}
+		this.writeBuffer();
+		this.channel.close();
+	}
+}
@@ -0,0 +1,331 @@
+package logging;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import car.CarState;
+import stations.EnergyState;
+
+/**
+ * Reads an EventJournal file and prints it as CSV or as summary statistics.
+ * Usage: java logging.EventJournalDecoder journal.bin [csv|summary] [output.csv]
+ * The CSV goes to standard output unless an output file is given.
+ */
+public class EventJournalDecoder implements Closeable
+{
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final HashMap<Integer, String> names = new HashMap<Integer, String>();
+	private final HashMap<Integer, Integer> attachedSlots = new HashMap<Integer, Integer>();
+	private boolean endOfFile = false;
+	private long timeBase = 0;
+
+	/* Current record */
+	private long time;
+	private JournalEventType type;
+	private int detail;
+	private int subject;
+	private int target;
+	private float value;
+
+	public static void main(String[] args) throws IOException {
+		String mode = args.length > 1 ? args[1] : "summary";
+		if (args.length < 1 || !(mode.equals("csv") || mode.equals("summary"))) {
+			System.out.println("Usage: java logging.EventJournalDecoder journal.bin [csv|summary] [output.csv]");
+			return;
+		}
+		try (EventJournalDecoder decoder = new EventJournalDecoder(args[0])) {
+			if (mode.equals("summary")) {
+				System.out.print(decoder.summarize());
+				return;
+			}
+			Writer out = args.length > 2
+				? Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)
+				: new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+			try {
+				decoder.writeCsv(out);
+			} finally {
+				out.flush();
+				if (args.length > 2) {
+					out.close();
+				}
+			}
+		}
+	}
+
+	public EventJournalDecoder(String path) throws IOException {
+		this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		this.buffer.limit(0);
+		if (!this.ensure(EventJournal.HEADER_SIZE) || this.buffer.getInt() != EventJournal.MAGIC) {
+			throw new IOException("Not an event journal...");
+		}
+		short version = this.buffer.getShort();
+		if (version != EventJournal.VERSION) {
+			throw new IOException("Unsupported event journal version " + version + "...");
+		}
+		this.buffer.getShort();
+		int recordSize = this.buffer.getInt();
+		if (recordSize != EventJournal.RECORD_SIZE) {
+			throw new IOException("Event journal has a wrong record size...");
+		}
+		this.buffer.getInt();
+	}
+
+	/**
+	 * Moves to the next event, reading name definitions and time bases on the
+	 * way. Returns false at the end of the journal; a record cut off by a
+	 * crash is ignored. For energy deliveries the target is set to the slot
+	 * the car was attached to last.
+	 */
+	public boolean next() throws IOException {
+		while (this.ensure(EventJournal.RECORD_SIZE)) {
+			int offset = this.buffer.getInt();
+			int code = this.buffer.get();
+			this.detail = this.buffer.get() & 0xff;
+			int length = this.buffer.getShort() & 0xffff;
+			this.subject = this.buffer.getInt();
+			this.target = this.buffer.getInt();
+			this.value = 0;
+			this.time = this.timeBase + offset;
+			this.type = JournalEventType.fromCode(code);
+			if (this.type == null) {
+				throw new IOException("Unknown event type " + code + " in event journal...");
+			}
+			switch (this.type) {
+				case timeBase:
+					this.timeBase = ((long) this.subject << 32) | (this.target & 0xffffffffL);
+					continue;
+				case name:
+					break;
+				case slotAttach:
+					this.attachedSlots.put(this.subject, this.target);
+					return true;
+				case energyDelivered:
+					this.value = Float.intBitsToFloat(this.target);
+					Integer slot = this.attachedSlots.get(this.subject);
+					this.target = slot == null ? EventJournal.NO_TARGET : slot;
+					return true;
+				default:
+					return true;
+			}
+			int padded = (length + EventJournal.RECORD_SIZE - 1) / EventJournal.RECORD_SIZE * EventJournal.RECORD_SIZE;
+			if (!this.ensure(padded)) {
+				return false;
+			}
+			byte[] bytes = new byte[length];
+			this.buffer.get(bytes);
+			this.buffer.position(this.buffer.position() + padded - length);
+			this.names.put(this.subject, new String(bytes, StandardCharsets.UTF_8));
+		}
+		return false;
+	}
+
+	/**
+	 * Makes sure the given number of bytes can be read from the buffer.
+	 */
+	private boolean ensure(int bytes) throws IOException {
+		while (this.buffer.remaining() < bytes) {
+			if (this.endOfFile) {
+				return false;
+			}
+			this.buffer.compact();
+			if (this.channel.read(this.buffer) < 0) {
+				this.endOfFile = true;
+			}
+			this.buffer.flip();
+		}
+		return true;
+	}
+
+	public long getTime() {
+		return this.time;
+	}
+
+	public JournalEventType getType() {
+		return this.type;
+	}
+
+	public int getDetail() {
+		return this.detail;
+	}
+
+	public int getSubject() {
+		return this.subject;
+	}
+
+	public int getTarget() {
+		return this.target;
+	}
+
+	public float getValue() {
+		return this.value;
+	}
+
+	public String getName(int id) {
+		String name = this.names.get(id);
+		return name != null ? name : "#" + id;
+	}
+
+	public void writeCsv(Writer out) throws IOException {
+		out.write("time_ms,event,subject,target,detail,value\n");
+		while (this.next()) {
+			String subjectName = this.type == JournalEventType.sourceSwitch
+				? Integer.toString(this.subject) : this.getName(this.subject);
+			String targetName = "";
+			String detailName = "";
+			String valueText = "";
+			switch (this.type) {
+				case carState:
+					detailName = CarState.values()[this.detail].toString();
+					break;
+				case queueEnter:
+					targetName = Integer.toString(this.target);
+					break;
+				case queueLeave:
+					targetName = Integer.toString(this.target);
+					detailName = this.detail == 1 ? "slot" : "gaveUp";
+					break;
+				case slotAttach:
+				case slotDetach:
+					targetName = this.getName(this.target);
+					break;
+				case energyDelivered:
+					targetName = this.getName(this.target);
+					valueText = Float.toString(this.value);
+					break;
+				case sourceSwitch:
+					detailName = EnergyState.values()[this.detail].toString();
+					break;
+				default:
+					break;
+			}
+			out.write(Long.toString(this.time));
+			out.write(',');
+			out.write(this.type.toString());
+			out.write(',');
+			out.write(quote(subjectName));
+			out.write(',');
+			out.write(quote(targetName));
+			out.write(',');
+			out.write(detailName);
+			out.write(',');
+			out.write(valueText);
+			out.write('\n');
+		}
+	}
+
+	private static String quote(String text) {
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+			return text;
+		}
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Reads the whole journal and returns counts per event type, queue waits,
+	 * charging sessions and delivered energy.
+	 */
+	public String summarize() throws IOException {
+		long[] counts = new long[JournalEventType.values().length];
+		long[] sources = new long[EnergyState.values().length];
+		HashMap<Integer, Long> queueEntered = new HashMap<Integer, Long>();
+		HashMap<Integer, Long> attached = new HashMap<Integer, Long>();
+		HashMap<Integer, Boolean> cars = new HashMap<Integer, Boolean>();
+		long firstTime = Long.MAX_VALUE;
+		long lastTime = Long.MIN_VALUE;
+		long toSlot = 0;
+		long gaveUp = 0;
+		long totalWait = 0;
+		long maxWait = 0;
+		long waits = 0;
+		long sessions = 0;
+		long totalSession = 0;
+		double energy = 0;
+
+		while (this.next()) {
+			counts[this.type.ordinal()]++;
+			firstTime = Math.min(firstTime, this.time);
+			lastTime = Math.max(lastTime, this.time);
+			switch (this.type) {
+				case carState:
+					cars.put(this.subject, Boolean.TRUE);
+					break;
+				case queueEnter:
+					queueEntered.put(this.subject, this.time);
+					break;
+				case queueLeave:
+					if (this.detail == 1) {
+						toSlot++;
+					} else {
+						gaveUp++;
+					}
+					Long entered = queueEntered.remove(this.subject);
+					if (entered != null) {
+						long wait = this.time - entered;
+						totalWait += wait;
+						maxWait = Math.max(maxWait, wait);
+						waits++;
+					}
+					break;
+				case slotAttach:
+					attached.put(this.subject, this.time);
+					break;
+				case slotDetach:
+					Long start = attached.remove(this.subject);
+					if (start != null) {
+						totalSession += this.time - start;
+						sessions++;
+					}
+					break;
+				case energyDelivered:
+					energy += this.value;
+					break;
+				case sourceSwitch:
+					sources[this.detail]++;
+					break;
+				default:
+					break;
+			}
+		}
+
+		StringBuilder summary = new StringBuilder();
+		long events = 0;
+		for (long count: counts) {
+			events += count;
+		}
+		summary.append(String.format("events: %d over %.1f simulated seconds%n",
+			events, events == 0 ? 0 : (lastTime - firstTime) / 1000.0));
+		for (JournalEventType eventType: JournalEventType.values()) {
+			if (eventType != JournalEventType.name && eventType != JournalEventType.timeBase) {
+				summary.append(String.format("  %-16s %d%n", eventType, counts[eventType.ordinal()]));
+			}
+		}
+		summary.append(String.format("cars: %d%n", cars.size()));
+		summary.append(String.format("queue: %d left for a slot, %d gave up, %d still waiting, wait avg %.1f ms, max %d ms%n",
+			toSlot, gaveUp, queueEntered.size(), waits == 0 ? 0 : (double) totalWait / waits, maxWait));
+		summary.append(String.format("charging: %d finished sessions, avg %.1f s, %d still charging%n",
+			sessions, sessions == 0 ? 0 : totalSession / 1000.0 / sessions, attached.size()));
+		summary.append(String.format("energy delivered: %.1f%n", energy));
+		for (EnergyState source: EnergyState.values()) {
+			summary.append(String.format("  switches to %-10s %d%n", source, sources[source.ordinal()]));
+		}
+		return summary.toString();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
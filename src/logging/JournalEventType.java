@@ -0,0 +1,71 @@
+package logging;
+
+/**
+ * Event types of the EventJournal. The code is what is stored in the file,
+ * so existing codes must not change.
+ */
+public enum JournalEventType {
+	/**
+	 * Defines the name of an entity id, see EventJournal.
+	 */
+	name(0),
+	/**
+	 * A car changed its state. Detail is the CarState ordinal.
+	 */
+	carState(1),
+	/**
+	 * A car joined the waiting queue of a station.
+	 */
+	queueEnter(2),
+	/**
+	 * A car left the waiting queue of a station. Detail is 1 if it left for
+	 * a slot and 0 if it gave up.
+	 */
+	queueLeave(3),
+	/**
+	 * A car was attached to a slot.
+	 */
+	slotAttach(4),
+	/**
+	 * A car was disconnected from a slot.
+	 */
+	slotDetach(5),
+	/**
+	 * A slot delivered energy to a car. Value is the amount, the slot is the
+	 * one the car was attached to last.
+	 */
+	energyDelivered(6),
+	/**
+	 * A station switched its energy source. Detail is the EnergyState ordinal.
+	 */
+	sourceSwitch(7),
+	/**
+	 * Sets the time the offsets of the following records count from.
+	 * Subject and target hold the high and low half of the milliseconds.
+	 */
+	timeBase(8);
+
+	private static final JournalEventType[] BY_CODE = new JournalEventType[9];
+	static {
+		for (JournalEventType type: values()) {
+			BY_CODE[type.code] = type;
+		}
+	}
+
+	private final byte code;
+
+	JournalEventType(int code) {
+		this.code = (byte) code;
+	}
+
+	public byte getCode() {
+		return this.code;
+	}
+
+	/**
+	 * Returns the type for a stored code, or null for an unknown code.
+	 */
+	public static JournalEventType fromCode(int code) {
+		return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+	}
+}
@@ -0,0 +1,167 @@
+package logging;
+
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logging layer for the simulation hot paths. Messages are passed as a
+ * supplier or as a String.format template with a few arguments, and are only
+ * built when the level is enabled. The fixed-arity overloads avoid the
+ * varargs array, and the double and long overloads avoid boxing numbers,
+ * so a disabled call doesn't allocate anything.
+ *
+ * Cars, slots and stations share one java.util.logging Logger per class, so
+ * the LogManager doesn't keep a logger for every entity. The entity is
+ * passed along on each record as its logger name, which is what the
+ * formatter prints, and the class as its source class. Levels can be set
+ * per class in logging.properties, e.g. car.Car.level = WARNING.
+ */
+public final class SimLogger
+{
+	private final Logger logger;
+	private final Object entity;
+
+	private SimLogger(Logger logger, Object entity) {
+		this.logger = logger;
+		this.entity = entity;
+	}
+
+	public static SimLogger getLogger(String name) {
+		return new SimLogger(Logger.getLogger(name), null);
+	}
+
+	/**
+	 * Returns a logger for one entity on the shared logger of its class.
+	 * The entity's toString() is only called for records that are logged.
+	 */
+	public static SimLogger getLogger(Class<?> type, Object entity) {
+		return new SimLogger(Logger.getLogger(type.getName()), entity);
+	}
+
+	/**
+	 * Returns the name shown on the records, the entity if there is one.
+	 */
+	public String getName() {
+		return this.entity != null ? this.entity.toString() : this.logger.getName();
+	}
+
+	private void publish(Level level, String message) {
+		LogRecord record = new LogRecord(level, message);
+		record.setLoggerName(this.getName());
+		// Also keeps the record from walking the stack for the caller
+		record.setSourceClassName(this.logger.getName());
+		this.logger.log(record);
+	}
+
+	public boolean isLoggable(Level level) {
+		return this.logger.isLoggable(level);
+	}
+
+	public void log(Level level, String message) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, message);
+		}
+	}
+
+	public void log(Level level, Supplier<String> message) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, message.get());
+		}
+	}
+
+	public void log(Level level, String format, Object arg) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg));
+		}
+	}
+
+	public void log(Level level, String format, Object arg1, Object arg2) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2));
+		}
+	}
+
+	public void log(Level level, String format, Object arg1, Object arg2, Object arg3) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2, arg3));
+		}
+	}
+
+	public void log(Level level, String format, double arg) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg));
+		}
+	}
+
+	public void log(Level level, String format, double arg1, double arg2) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2));
+		}
+	}
+
+	public void log(Level level, String format, double arg1, double arg2, double arg3) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2, arg3));
+		}
+	}
+
+	public void log(Level level, String format, Object arg1, long arg2) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2));
+		}
+	}
+
+	public void log(Level level, String format, double arg1, Object arg2) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2));
+		}
+	}
+
+	public void log(Level level, String format, double arg1, Object arg2, double arg3) {
+		if (this.logger.isLoggable(level)) {
+			this.publish(level, String.format(format, arg1, arg2, arg3));
+		}
+	}
+
+	public void severe(String message) {
+		this.log(Level.SEVERE, message);
+	}
+
+	public void warning(String message) {
+		this.log(Level.WARNING, message);
+	}
+
+	public void info(String message) {
+		this.log(Level.INFO, message);
+	}
+
+	public void fine(String message) {
+		this.log(Level.FINE, message);
+	}
+
+	public void finer(String message) {
+		this.log(Level.FINER, message);
+	}
+
+	public void finest(String message) {
+		this.log(Level.FINEST, message);
+	}
+
+	public void info(Supplier<String> message) {
+		this.log(Level.INFO, message);
+	}
+
+	public void fine(Supplier<String> message) {
+		this.log(Level.FINE, message);
+	}
+
+	public void finer(Supplier<String> message) {
+		this.log(Level.FINER, message);
+	}
+
+	public void finest(Supplier<String> message) {
+		this.log(Level.FINEST, message);
+	}
+}
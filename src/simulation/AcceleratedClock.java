@@ -0,0 +1,48 @@
+package simulation;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import annotations.Readonly;
+
+/**
+ * Simulated time runs a fixed factor faster than wall-clock time,
+ * e.g. with a factor of 1000 a simulated day takes about 86 seconds.
+ */
+public class AcceleratedClock implements SimClock {
+	private double factor;
+	private LocalDateTime startTime;
+	private long startNanos;
+
+	public AcceleratedClock(double factor) {
+		if (factor <= 0) {
+			throw new IllegalArgumentException("Clock factor has to be greater than 0.");
+		}
+		this.factor = factor;
+		this.startTime = LocalDateTime.now();
+		this.startNanos = System.nanoTime();
+	}
+
+	@Readonly
+	public double getFactor() {
+		return this.factor;
+	}
+
+	@Override
+	@Readonly
+	public LocalDateTime now() {
+		long elapsedNanos = System.nanoTime() - this.startNanos;
+		return this.startTime.plusNanos((long) (elapsedNanos * this.factor));
+	}
+
+	@Override
+	@Readonly
+	public long millis() {
+		return (long) ((System.nanoTime() - this.startNanos) * this.factor / 1_000_000L);
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		TimeUnit.NANOSECONDS.sleep((long) (millis * 1_000_000L / this.factor));
+	}
+}
@@ -0,0 +1,165 @@
+package simulation;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import annotations.Mutable;
+import annotations.Readonly;
+import car.Car;
+import stations.ChargingStation;
+
+/**
+ * Runs the simulation on a single thread against a virtual clock.
+ * Every car step and station energy delivery that the threaded mode
+ * performs once per second and every station dispatch is scheduled as an
+ * event, so the model behaves the same but runs as fast as the CPU allows.
+ */
+public class DiscreteEventEngine {
+	public static final long STEP_MILLIS = 1000;
+
+	private Logger logger = Logger.getLogger("DiscreteEventEngine");
+	private PriorityQueue<SimulationEvent> events = new PriorityQueue<SimulationEvent>();
+	private VirtualClock clock;
+	private long sequence = 0;
+	private int pendingCars = 0;
+	private int activeCars = 0;
+	private long processedEvents = 0;
+
+	public DiscreteEventEngine(ChargingStation[] stations) {
+		this.clock = new VirtualClock(LocalDateTime.now());
+		for (ChargingStation station: stations) {
+			station.setDispatchScheduler(() -> this.scheduleDispatch(station));
+			this.scheduleEnergyDelivery(station);
+		}
+	}
+
+	@Readonly
+	public VirtualClock getClock() {
+		return this.clock;
+	}
+
+	@Readonly
+	public long getProcessedEvents() {
+		return this.processedEvents;
+	}
+
+	/**
+	 * Schedules an action to run the given amount of virtual milliseconds from now.
+	 */
+	@Mutable
+	public void schedule(long delayMillis, EventType type, Runnable action) {
+		long time = this.clock.getElapsedMillis() + delayMillis;
+		this.events.add(new SimulationEvent(time, this.sequence++, type, action));
+	}
+
+	/**
+	 * Lets the car enter the map at the given virtual time.
+	 */
+	@Mutable
+	public void deployCar(Car car, long arrivalMillis) {
+		this.pendingCars++;
+		long delay = arrivalMillis - this.clock.getElapsedMillis();
+		this.schedule(delay, EventType.carArrival, () -> this.arrive(car));
+	}
+
+	@Mutable
+	private void arrive(Car car) {
+		this.pendingCars--;
+		this.activeCars++;
+		this.logger.info(String.format("--- Deploying next car: %s ---", car.toString()));
+		this.scheduleCarStep(car);
+	}
+
+	/**
+	 * Deploys the cars one after the other, each arrivalGapMillis after the
+	 * previous one. The next car is only taken from the iterator when the
+	 * previous one arrives, so a streamed fleet is read while the simulation
+	 * runs and never held in the event queue as a whole.
+	 */
+	@Mutable
+	public void deployCars(Iterator<Car> cars, LongSupplier arrivalGapMillis) {
+		if (!cars.hasNext()) {
+			this.logger.info("-------All cars are deployed.-------");
+			return;
+		}
+		Car car = cars.next();
+		this.pendingCars++;
+		this.schedule(arrivalGapMillis.getAsLong(), EventType.carArrival, () -> {
+			this.arrive(car);
+			this.deployCars(cars, arrivalGapMillis);
+		});
+	}
+
+	/**
+	 * Processes events until every car has left the map or the virtual time
+	 * reaches endMillis. Cars that never get fully charged would otherwise keep
+	 * the simulation alive forever.
+	 */
+	@Mutable
+	public void run(long endMillis) {
+		SimClock previousClock = SimulationClock.get();
+		SimulationClock.set(this.clock);
+		try {
+			while (!this.events.isEmpty() && this.events.peek().getTime() <= endMillis) {
+				SimulationEvent event = this.events.poll();
+				this.clock.advanceTo(event.getTime());
+				try {
+					event.getAction().run();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				this.processedEvents++;
+			}
+		} finally {
+			SimulationClock.set(previousClock);
+		}
+		this.logger.info(String.format(
+			"Simulation finished after %d virtual seconds and %d events.",
+			this.clock.getElapsedMillis() / 1000, this.processedEvents
+		));
+	}
+
+	@Readonly
+	private boolean hasCarsLeft() {
+		return this.pendingCars > 0 || this.activeCars > 0;
+	}
+
+	@Mutable
+	private void scheduleCarStep(Car car) {
+		this.schedule(STEP_MILLIS, EventType.carStep, () -> {
+			boolean active;
+			try {
+				active = car.step();
+			} catch (Exception e) {
+				e.printStackTrace();
+				active = true;
+			}
+			if (active) {
+				this.scheduleCarStep(car);
+			} else {
+				this.activeCars--;
+			}
+		});
+	}
+
+	@Mutable
+	private void scheduleEnergyDelivery(ChargingStation station) {
+		this.schedule(STEP_MILLIS, EventType.energyDelivery, () -> {
+			station.deliverEnergy();
+			if (this.hasCarsLeft()) {
+				this.scheduleEnergyDelivery(station);
+			}
+		});
+	}
+
+	/**
+	 * Stations are only dispatched when signalled, at the current virtual time.
+	 */
+	@Mutable
+	private void scheduleDispatch(ChargingStation station) {
+		this.schedule(0, EventType.stationDispatch, station::dispatchWaitingCars);
+	}
+}
@@ -0,0 +1,8 @@
+package simulation;
+
+public enum EventType {
+	carArrival,
+	carStep,
+	energyDelivery,
+	stationDispatch
+}
@@ -0,0 +1,30 @@
+package simulation;
+
+import java.time.LocalDateTime;
+
+import annotations.Readonly;
+
+/**
+ * Simulated time equals wall-clock time.
+ */
+public class RealTimeClock implements SimClock {
+	private final long originNanos = System.nanoTime();
+
+	@Override
+	@Readonly
+	public LocalDateTime now() {
+		return LocalDateTime.now();
+	}
+
+	@Override
+	@Readonly
+	public long millis() {
+		// Counted from the creation of the clock, so journal times start near 0
+		return (System.nanoTime() - this.originNanos) / 1_000_000L;
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		Thread.sleep(millis);
+	}
+}
@@ -0,0 +1,28 @@
+package simulation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Source of simulated time. Every time read and every sleep of the model
+ * goes through the current clock, see SimulationClock.
+ */
+public interface SimClock {
+
+	/**
+	 * Returns the current simulated time.
+	 */
+	LocalDateTime now();
+
+	/**
+	 * Returns the current simulated time in milliseconds. Only differences
+	 * between two values are meaningful. Unlike now() this doesn't allocate.
+	 */
+	long millis();
+
+	/**
+	 * Blocks the calling thread for the given amount of simulated milliseconds.
+	 * Clocks whose time is moved by the discrete-event engine can't block and
+	 * throw an IllegalStateException instead.
+	 */
+	void sleep(long millis) throws InterruptedException;
+}
@@ -0,0 +1,37 @@
+package simulation;
+
+import java.time.LocalDateTime;
+
+import annotations.Mutable;
+import annotations.Readonly;
+
+/**
+ * Holds the clock the model currently runs on. Defaults to real time.
+ */
+public class SimulationClock {
+	private static volatile SimClock clock = new RealTimeClock();
+
+	@Readonly
+	public static SimClock get() {
+		return clock;
+	}
+
+	@Mutable
+	public static void set(SimClock newClock) {
+		clock = newClock;
+	}
+
+	@Readonly
+	public static LocalDateTime now() {
+		return clock.now();
+	}
+
+	@Readonly
+	public static long millis() {
+		return clock.millis();
+	}
+
+	public static void sleep(long millis) throws InterruptedException {
+		clock.sleep(millis);
+	}
+}
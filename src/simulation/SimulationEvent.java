@@ -0,0 +1,44 @@
+package simulation;
+
+import annotations.Readonly;
+
+/**
+ * Timestamped event of the discrete-event engine.
+ * Events with the same time are ordered by the sequence they were scheduled in.
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+	private long time;
+	private long sequence;
+	private EventType type;
+	private Runnable action;
+
+	public SimulationEvent(long time, long sequence, EventType type, Runnable action) {
+		this.time = time;
+		this.sequence = sequence;
+		this.type = type;
+		this.action = action;
+	}
+
+	@Readonly
+	public long getTime() {
+		return time;
+	}
+
+	@Readonly
+	public EventType getType() {
+		return type;
+	}
+
+	@Readonly
+	public Runnable getAction() {
+		return action;
+	}
+
+	@Override
+	public int compareTo(SimulationEvent other) {
+		if (this.time != other.time) {
+			return Long.compare(this.time, other.time);
+		}
+		return Long.compare(this.sequence, other.sequence);
+	}
+}
@@ -0,0 +1,142 @@
+package simulation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import annotations.Mutable;
+import annotations.Readonly;
+
+/**
+ * Single executor that runs all car, slot and station runnables of a
+ * simulation and shuts them down together.
+ */
+public class SimulationExecutor {
+	private static Logger logger = Logger.getLogger("SimulationExecutor");
+	private static final long AWAIT_POLL_MILLIS = 100;
+
+	private ExecutorService executor;
+	private boolean virtualThreads;
+	private final Object carsLock = new Object();
+	private int runningCars = 0;
+
+	private SimulationExecutor(ExecutorService executor, boolean virtualThreads) {
+		this.executor = executor;
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Executor that starts one platform thread per runnable.
+	 */
+	public static SimulationExecutor platformThreads() {
+		return new SimulationExecutor(Executors.newCachedThreadPool(), false);
+	}
+
+	/**
+	 * Executor that starts one virtual thread per runnable. Virtual threads need
+	 * Java 21, so the executor is looked up at runtime and platform threads are
+	 * used when the running JVM doesn't provide them. Callers that depend on
+	 * virtual threads check isUsingVirtualThreads().
+	 */
+	public static SimulationExecutor virtualThreads() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return new SimulationExecutor((ExecutorService) factory.invoke(null), true);
+		} catch (ReflectiveOperationException e) {
+			logger.warning("Virtual threads are not supported by this JVM. Using platform threads instead.");
+			return platformThreads();
+		}
+	}
+
+	@Readonly
+	public boolean isUsingVirtualThreads() {
+		return this.virtualThreads;
+	}
+
+	/**
+	 * Runs a station or slot until the executor is shut down.
+	 */
+	@Mutable
+	public void execute(Runnable runnable) {
+		this.executor.execute(runnable);
+	}
+
+	/**
+	 * Runs a car. The executor only counts running cars, so a long stream of
+	 * deployed cars doesn't pile up in memory after they left the map.
+	 */
+	@Mutable
+	public void executeCar(Runnable car) {
+		synchronized (this.carsLock) {
+			this.runningCars++;
+		}
+		try {
+			this.executor.execute(() -> {
+				try {
+					car.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				} finally {
+					this.carFinished();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.carFinished();
+			throw e;
+		}
+	}
+
+	@Mutable
+	private void carFinished() {
+		synchronized (this.carsLock) {
+			this.runningCars--;
+			this.carsLock.notifyAll();
+		}
+	}
+
+	@Readonly
+	public int getRunningCars() {
+		synchronized (this.carsLock) {
+			return this.runningCars;
+		}
+	}
+
+	/**
+	 * Blocks until every car submitted so far has left the map, or until the
+	 * given simulated milliseconds have passed on the SimulationClock.
+	 * Returns false if cars were still running at the deadline.
+	 */
+	@Readonly
+	public boolean awaitCars(long timeoutMillis) throws InterruptedException {
+		long deadline = SimulationClock.millis() + timeoutMillis;
+		synchronized (this.carsLock) {
+			while (this.runningCars > 0) {
+				long remaining = deadline - SimulationClock.millis();
+				if (remaining <= 0) {
+					return false;
+				}
+				// The clock may run faster than real time, so check it again regularly
+				this.carsLock.wait(Math.min(remaining, AWAIT_POLL_MILLIS));
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Interrupts every remaining runnable and waits for them to stop.
+	 */
+	@Mutable
+	public void shutdown() {
+		this.executor.shutdownNow();
+		try {
+			if (!this.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.warning("Not all simulation threads stopped in time.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
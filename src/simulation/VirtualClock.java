@@ -0,0 +1,53 @@
+package simulation;
+
+import java.time.LocalDateTime;
+
+import annotations.Mutable;
+import annotations.Readonly;
+
+/**
+ * Clock of the discrete-event engine. Time only moves when the engine advances it,
+ * which lets the simulation run as fast as possible.
+ */
+public class VirtualClock implements SimClock {
+	private LocalDateTime startTime;
+	private long elapsedMillis = 0;
+
+	public VirtualClock(LocalDateTime startTime) {
+		this.startTime = startTime;
+	}
+
+	@Override
+	@Readonly
+	public LocalDateTime now() {
+		return this.startTime.plusNanos(this.elapsedMillis * 1_000_000L);
+	}
+
+	@Override
+	@Readonly
+	public long millis() {
+		return this.elapsedMillis;
+	}
+
+	/**
+	 * Entities never sleep on the virtual clock, the engine schedules their next step instead.
+	 * Sleeping would wait for time that only moves between events, so it is always an error.
+	 */
+	@Override
+	public void sleep(long millis) {
+		throw new IllegalStateException("Can't sleep on the virtual clock, the discrete-event engine advances time itself.");
+	}
+
+	@Readonly
+	public long getElapsedMillis() {
+		return this.elapsedMillis;
+	}
+
+	@Mutable
+	public void advanceTo(long millis) {
+		if (millis < this.elapsedMillis) {
+			throw new IllegalArgumentException("Virtual clock can't go back in time.");
+		}
+		this.elapsedMillis = millis;
+	}
+}
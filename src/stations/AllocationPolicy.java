@@ -0,0 +1,110 @@
+package stations;
+
+import car.Car;
+
+/**
+ * Decides how a station splits the energy it got from storage in one tick
+ * between the cars that are charging. Demands are replaced by the allocated
+ * amounts in place. order and deadlines are scratch arrays of the station.
+ */
+public enum AllocationPolicy {
+	/**
+	 * Every car gets the same share of its demand.
+	 */
+	proportional {
+		@Override
+		void allocate(Car[] cars, float[] demands, int[] order, long[] deadlines, int count, float granted) {
+			shareProportionally(cars, demands, count, granted);
+		}
+	},
+	/**
+	 * Priority cars are served in full first, the rest is shared proportionally.
+	 */
+	priorityFirst {
+		@Override
+		void allocate(Car[] cars, float[] demands, int[] order, long[] deadlines, int count, float granted) {
+			float remaining = granted;
+			for (int i = 0; i < count; i++) {
+				if (cars[i] != null && cars[i].isPriority()) {
+					demands[i] = Math.min(demands[i], remaining);
+					remaining -= demands[i];
+				}
+			}
+			shareBetweenNormalCars(cars, demands, count, remaining);
+		}
+	},
+	/**
+	 * Cars are served in full in the order of their deadline, which is the time
+	 * they entered the station plus the time they are willing to wait.
+	 */
+	earliestDeadline {
+		@Override
+		void allocate(Car[] cars, float[] demands, int[] order, long[] deadlines, int count, float granted) {
+			int active = 0;
+			for (int i = 0; i < count; i++) {
+				if (cars[i] != null) {
+					deadlines[i] = getDeadlineMillis(cars[i]);
+					// insertion sort, stations only have a handful of slots
+					int position = active++;
+					while (position > 0 && deadlines[i] < deadlines[order[position - 1]]) {
+						order[position] = order[position - 1];
+						position--;
+					}
+					order[position] = i;
+				}
+			}
+			float remaining = granted;
+			for (int i = 0; i < active; i++) {
+				int slot = order[i];
+				demands[slot] = Math.min(demands[slot], remaining);
+				remaining -= demands[slot];
+			}
+		}
+	};
+
+	abstract void allocate(Car[] cars, float[] demands, int[] order, long[] deadlines, int count, float granted);
+
+	/**
+	 * Shares the amount between all cars proportionally to their demand.
+	 */
+	private static void shareProportionally(Car[] cars, float[] demands, int count, float amount) {
+		share(cars, demands, count, amount, false);
+	}
+
+	/**
+	 * Shares the amount between the cars without priority proportionally to
+	 * their demand.
+	 */
+	private static void shareBetweenNormalCars(Car[] cars, float[] demands, int count, float amount) {
+		share(cars, demands, count, amount, true);
+	}
+
+	private static void share(Car[] cars, float[] demands, int count, float amount, boolean normalCarsOnly) {
+		float total = 0;
+		for (int i = 0; i < count; i++) {
+			if (cars[i] != null && !(normalCarsOnly && cars[i].isPriority())) {
+				total += demands[i];
+			}
+		}
+		if (total <= amount) {
+			return;
+		}
+		float factor = amount / total;
+		for (int i = 0; i < count; i++) {
+			if (cars[i] != null && !(normalCarsOnly && cars[i].isPriority())) {
+				demands[i] *= factor;
+			}
+		}
+	}
+
+	/**
+	 * Returns the deadline of the car in SimulationClock milliseconds, the
+	 * time it entered the station plus the time it is willing to wait.
+	 */
+	private static long getDeadlineMillis(Car car) {
+		if (car.getEnterStationTime() == null) {
+			return Long.MAX_VALUE;
+		}
+		return car.getEnterStationMillis() + (long) (car.getMaximumWaitingDuration() * 1000);
+	}
+}
@@ -2,37 +2,52 @@ package stations;
 
 import java.awt.event.WindowStateListener;
 import java.time.LocalDateTime;
-import java.util.logging.Logger;
+import java.util.logging.Level;
 
 import annotations.Mutable;
 import annotations.Readonly;
 import car.Car;
 import car.CarState;
-import car.ElectricCar;
+import car.FuelType;
 import exceptions.ChargingSlotFullException;
+import logging.EventJournal;
+import logging.SimLogger;
+import simulation.SimulationClock;
 
 
-public class ChargingSlot implements Runnable{
+public class ChargingSlot {
 	private String name;
+	private final FuelType fuelType;
+	private final int journalId;
 	protected ChargingStation chargingStation;
-	protected Car currentCar = null;
-	protected Logger logger;
+	protected volatile Car currentCar = null;
+	protected SimLogger logger;
+	/* Fuel still owed to the current car, counted in the station's charging demand */
+	private float owedDemand = 0;
 	
 	
-	public ChargingSlot(String name, ChargingStation station) 
+	public ChargingSlot(String name, FuelType fuelType, ChargingStation station) 
 	{
 		this.name = name;
+		this.fuelType = fuelType;
+		this.journalId = EventJournal.register(name);
 		this.chargingStation = station;	
-		this.logger = Logger.getLogger(this.toString());
+		this.logger = SimLogger.getLogger(ChargingSlot.class, this);
 	}
 	
 	@Mutable
-	public void setCarToSlot(Car car) throws ChargingSlotFullException
+	public synchronized void setCarToSlot(Car car) throws ChargingSlotFullException
 	{
 		if(this.getCurrentCar() == null){
 			this.currentCar = car;
+			this.owedDemand = car.getMissingAmountOfFuel();
+			this.chargingStation.addChargingDemand(this, this.owedDemand);
 			this.currentCar.setCurrentState(CarState.charging);
-			this.logger.info("Attached car " + this.currentCar.toString());
+			this.logger.log(Level.INFO, "Attached car %s", this.currentCar);
+			EventJournal journal = EventJournal.get();
+			if (journal != null) {
+				journal.slotAttach(car.getJournalId(), this.journalId);
+			}
 		} else{
 			throw new ChargingSlotFullException("Charging slot already has a car set to it");
 		}
@@ -40,8 +55,34 @@ public class ChargingSlot implements Runnable{
 
 	@Mutable
 	public void disconnectCar() {
-		this.logger.info("Disconnecting " + this.currentCar.toString());
-		this.currentCar = null;
+		synchronized (this) {
+			Car car = this.currentCar;
+			this.logger.log(Level.INFO, "Disconnecting %s", car);
+			EventJournal journal = EventJournal.get();
+			if (journal != null) {
+				journal.slotDetach(car.getJournalId(), this.journalId);
+			}
+			this.settleDemand(this.owedDemand);
+			this.currentCar = null;
+		}
+		this.chargingStation.releaseSlot(this);
+	}
+
+	/**
+	 * Takes fuel off what the current car is owed, never more than is left.
+	 * This is the only place a car's demand leaves the station's total, so a
+	 * delivery racing with the disconnect can't subtract it twice.
+	 */
+	@Mutable
+	private void settleDemand(float amount) {
+		float settled = Math.min(amount, this.owedDemand);
+		this.owedDemand -= settled;
+		this.chargingStation.addChargingDemand(this, -settled);
+	}
+
+	@Readonly
+	public FuelType getFuelType() {
+		return this.fuelType;
 	}
 
 	@Readonly
@@ -52,7 +93,7 @@ public class ChargingSlot implements Runnable{
 	@Readonly
 	private LocalDateTime calculateNextFreeTime() {
 		long chargingTime = (long) this.currentCar.getChargingTime(this.chargingStation);
-		return LocalDateTime.now().plusSeconds(chargingTime);
+		return SimulationClock.now().plusSeconds(chargingTime);
 	}
 
 	@Readonly
@@ -60,25 +101,23 @@ public class ChargingSlot implements Runnable{
 		return this.name;
 	} 
 
-	@Override
-	public void run(){
-		while (true){
-			try{
-				Thread.sleep(1000);
-				Car car = this.getCurrentCar();
-				if (car != null ){
-					float energyAmount = car.getMissingAmountOfFuel();
-					if (car instanceof ElectricCar){
-						energyAmount = this.chargingStation.consumeElectricity(energyAmount);
-					} else {
-						energyAmount = this.chargingStation.consumeGas(energyAmount);
-					}
-					this.logger.info("Adding " + energyAmount + " to car " + car.toString());
-					car.addFuel(energyAmount);
-				}
-			} catch (Exception e){
-				e.printStackTrace();
-			}			
+	/**
+	 * Hands the energy the station allocated to this slot to the car and
+	 * returns the amount delivered, which is 0 if the car left the slot in
+	 * the meantime.
+	 */
+	@Mutable
+	synchronized float deliver(Car car, float energyAmount) {
+		if (car != this.currentCar) {
+			return 0;
+		}
+		this.logger.log(Level.INFO, "Adding %.2f to car %s", energyAmount, car);
+		car.addFuel(energyAmount);
+		EventJournal journal = EventJournal.get();
+		if (journal != null) {
+			journal.energyDelivered(car.getJournalId(), energyAmount);
 		}
+		this.settleDemand(energyAmount);
+		return energyAmount;
 	}
-}	
+}
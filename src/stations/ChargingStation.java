@@ -1,11 +1,15 @@
 package stations;
 
 import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Logger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.logging.Level;
 import annotations.APIMethod;
 import annotations.Mutable;
 import annotations.Readonly;
@@ -14,35 +18,60 @@ import api.LocationAPI;
 import car.Car;
 import car.CarState;
 import car.ElectricCar;
+import car.FuelType;
 import car.GasCar;
 import exceptions.InvalidGPSLatitudeException;
 import exceptions.InvalidGPSLongitudeException;
 import exceptions.InvalidGPSValueException;
+import logging.EventJournal;
+import logging.SimLogger;
+import simulation.SimulationClock;
 import weather.WeatherState;
 import weather.weather;
 
 
 public class ChargingStation implements Runnable {	
-	private Logger logger;
+	private SimLogger logger;
 	/* Charging Station Info */
 	private int chargingStationID;
 	
 	private GPSValues gpsValues;
 	private float gasOutputPerSecond;
 	private float electricityOutputPerSecond;
-	private float levelOfElectricityStorage;
-	private float levelOfGasStorage;
+	private EnergyStorage electricityStorage = new EnergyStorage();
+	private EnergyStorage gasStorage = new EnergyStorage();
 	
 	private weather stationWeatherState = new weather();
 	private EnergySource stationEnergySource = new EnergySource();
 	private EnergyState currentEnergySource;
-	private Semaphore gasSemaphore;
-	private Semaphore electricitySemaphore;
 	
+	/* Energy delivery */
+	private AllocationPolicy allocationPolicy = AllocationPolicy.proportional;
+	private EnergyDispatcher energyDispatcher;
+	private Object chargingLock = new Object();
+	private Car[] chargingCars;
+	private float[] allocations;
+	private int[] allocationOrder;
+	private long[] allocationDeadlines;
 	
-	private ArrayList<Car> waitingQueue = new ArrayList<Car>();
+	/* Dispatch signalling */
+	private Semaphore dispatchSignal = new Semaphore(0);
+	private Runnable dispatchScheduler = null;
+	private AtomicLong dispatchedCars = new AtomicLong();
+	private AtomicLong totalQueueToSlotMillis = new AtomicLong();
+	private AtomicLong maxQueueToSlotMillis = new AtomicLong();
+	
+	
+	private WaitingLane electricLane = new WaitingLane();
+	private WaitingLane gasLane = new WaitingLane();
+	private DoubleAdder electricChargingDemand = new DoubleAdder();
+	private DoubleAdder gasChargingDemand = new DoubleAdder();
 	private ArrayList<ChargingSlot> electricSlots = new ArrayList<ChargingSlot>();
 	private ArrayList<ChargingSlot> gasSlots = new ArrayList<ChargingSlot>();
+	private ConcurrentLinkedQueue<ChargingSlot> freeElectricSlots = new ConcurrentLinkedQueue<ChargingSlot>();
+	private ConcurrentLinkedQueue<ChargingSlot> freeGasSlots = new ConcurrentLinkedQueue<ChargingSlot>();
+	private AtomicInteger numFreeElectricSlots = new AtomicInteger();
+	private AtomicInteger numFreeGasSlots = new AtomicInteger();
 	
 
 	@APIMethod
@@ -59,7 +88,8 @@ public class ChargingStation implements Runnable {
 		
 		{
 			this.chargingStationID = chargingStationID;
-			this.logger = Logger.getLogger(this.toString());
+			this.logger = SimLogger.getLogger(ChargingStation.class, this);
+			this.energyDispatcher = new EnergyDispatcher(this);
 			try {
 				LocationAPI.checkGPSValues(gpsValues);
 			} catch (InvalidGPSLatitudeException | InvalidGPSLongitudeException e) {
@@ -80,34 +110,32 @@ public class ChargingStation implements Runnable {
 			}
 		}
 		
-		{
-			stationWeatherState.getRandomWeather();
-		}
-		
 		{
 			if (numElectricSlots > 0) {
 				for(int i=0; i < numElectricSlots; i++){
-					electricitySemaphore = new Semaphore(numElectricSlots, true);
-					
 					String name = String.format("%s-ElecticSlot-%s ", this.toString(), i+1 );
-					ChargingSlot slot = new ChargingSlot(name, this);
+					ChargingSlot slot = new ChargingSlot(name, FuelType.electric, this);
 					this.electricSlots.add(slot);
-					Thread slotThread = new Thread(slot);
-					slotThread.start();
+					this.freeElectricSlots.add(slot);
+					this.numFreeElectricSlots.incrementAndGet();
 				}
 			}
 			if (numGasSlots > 0) {
 				for(int i=0; i < numGasSlots; i++){
-					gasSemaphore = new Semaphore(numGasSlots, true);
-					
 					String name = String.format("%s-GasSlot-%s ", this.toString(), i+1 );
-					ChargingSlot slot = new ChargingSlot(name, this);
+					ChargingSlot slot = new ChargingSlot(name, FuelType.gas, this);
 					this.gasSlots.add(slot);
-					Thread slotThread = new Thread(slot);
-					slotThread.start();
+					this.freeGasSlots.add(slot);
+					this.numFreeGasSlots.incrementAndGet();
 				}
 			}
 
+			int maxSlots = Math.max(numGasSlots, numElectricSlots);
+			this.chargingCars = new Car[maxSlots];
+			this.allocations = new float[maxSlots];
+			this.allocationOrder = new int[maxSlots];
+			this.allocationDeadlines = new long[maxSlots];
+
 			if (gasOutputPerSecond < 0 || electricityOutputPerSecond < 0) {
 				throw new IllegalArgumentException("Charging station output can't be fewer than 0.");
 			}
@@ -131,54 +159,56 @@ public class ChargingStation implements Runnable {
 				throw new IllegalArgumentException(
 						"Station can't have 0 electricity slots and still have electricity output potential.");
 			}
-			this.levelOfElectricityStorage = levelOfElectricityStorage;
-			this.levelOfGasStorage = levelOfGasStorage;
+			this.electricityStorage.setLevel(levelOfElectricityStorage);
+			this.gasStorage.setLevel(levelOfGasStorage);
 		}
 
-		if (levelOfElectricityStorage < 0 || levelOfGasStorage < 0) {
-			throw new IllegalArgumentException("Charging station storage can't be fewer than 0.");
-		} else if (levelOfElectricityStorage == 0 && levelOfGasStorage == 0){
-			throw new IllegalArgumentException("Station can't have 0 storage of any kind");
-		}
-		if (numGasSlots == 0 && levelOfGasStorage > 0) {
-			throw new IllegalArgumentException("Station can't have 0 gas slots and still have gas output potential.");
-		} else if (numElectricSlots == 0 && levelOfElectricityStorage > 0) {
-			throw new IllegalArgumentException(
-					"Station can't have 0 electricity slots and still have electricity output potential.");
-		}
-		this.levelOfElectricityStorage = levelOfElectricityStorage;
-		this.levelOfGasStorage = levelOfGasStorage;
-
-		if (levelOfElectricityStorage < 0 || levelOfGasStorage < 0) {
-			throw new IllegalArgumentException("Charging station storage can't be fewer than 0.");
-		} else if (levelOfElectricityStorage == 0 && levelOfGasStorage == 0){
-			throw new IllegalArgumentException("Station can't have 0 storage of any kind");
-		}
-		if (numGasSlots == 0 && levelOfGasStorage > 0) {
-			throw new IllegalArgumentException("Station can't have 0 gas slots and still have gas output potential.");
-		} else if (numElectricSlots == 0 && levelOfElectricityStorage > 0) {
-			throw new IllegalArgumentException(
-					"Station can't have 0 electricity slots and still have electricity output potential.");
-		}
-		this.levelOfElectricityStorage = levelOfElectricityStorage;
-		this.levelOfGasStorage = levelOfGasStorage;
+		this.logger.log(Level.FINE, "Initiated %s", this);
+		this.setRandomWeather(new Random());
+	}
 
-		this.logger.fine("Initiated " + this.toString());
-		this.logger.info(String.format("Weather: %s", stationWeatherState.getWeather()));
+	/**
+	 * Picks new weather for the station with the given random generator and
+	 * switches the power source to match it.
+	 */
+	@Mutable
+	public void setRandomWeather(Random random) {
+		stationWeatherState.getRandomWeather(random);
+		this.logger.log(Level.INFO, "Weather: %s", stationWeatherState.getWeather());
 		
 		/*
 		 * Power Source of station
 		 */
 		if(stationWeatherState.getWeatherValue().ordinal() < WeatherState.cloudy.ordinal())
 		{
-			stationEnergySource.setSolar();
-			currentEnergySource = stationEnergySource.getEnergyValue();
+			this.setEnergySource(EnergyState.solar);
 		}
 		else {
+			this.setEnergySource(EnergyState.powerGrid);
+		}
+	}
+
+	@Readonly
+	public EnergyState getEnergySource() {
+		return this.currentEnergySource;
+	}
+
+	/**
+	 * Switches the station to the given power source.
+	 */
+	@Mutable
+	public void setEnergySource(EnergyState source) {
+		if (source == EnergyState.solar) {
+			stationEnergySource.setSolar();
+		} else {
 			stationEnergySource.setPowerGrid();
-			currentEnergySource = stationEnergySource.getEnergyValue();
 		}
-		this.logger.info(String.format("Power source: %s", currentEnergySource.toString()));
+		currentEnergySource = stationEnergySource.getEnergyValue();
+		this.logger.log(Level.INFO, "Power source: %s", currentEnergySource);
+		EventJournal journal = EventJournal.get();
+		if (journal != null) {
+			journal.sourceSwitch(this.chargingStationID, currentEnergySource);
+		}
 	}
 
 	@Readonly
@@ -186,6 +216,11 @@ public class ChargingStation implements Runnable {
 		return String.format("Charging Station %d", this.chargingStationID);
 	}
 
+	@Readonly
+	public GPSValues getGPSValues() {
+		return this.gpsValues;
+	}
+
 	@Readonly
 	public float getGPSLatitude() throws InvalidGPSValueException {
 		if (this.gpsValues.getLatitude() == 0) {
@@ -223,16 +258,43 @@ public class ChargingStation implements Runnable {
 
 	@Readonly
 	public int getAvailableGasSlots() {
-		return (int) gasSlots.stream()
-			.filter(slot -> slot.currentCar == null).count();
+		return this.numFreeGasSlots.get();
 	}
 
 	@Readonly
 	public int getAvailableElectricSlots() {
-		return (int) electricSlots.stream()
-			.filter(slot -> slot.currentCar == null).count();
+		return this.numFreeElectricSlots.get();
+	}
+
+
+	@Readonly
+	public int getAvailableSlots(FuelType fuelType) {
+		if (fuelType == FuelType.electric) {
+			return this.getAvailableElectricSlots();
+		}
+		return this.getAvailableGasSlots();
 	}
 
+	/**
+	 * return the expected waiting time in seconds value for a car of the fuel type
+	 */
+	@Readonly
+	public float getExpectedWaitingTime(FuelType fuelType) {
+		if (fuelType == FuelType.electric) {
+			return this.getExpectedWaitingTimeForElectricCars();
+		}
+		return this.getExpectedWaitingTimeForGasCars();
+	}
+
+	/**
+	 * Returns all gas and electric slots of the station.
+	 */
+	@Readonly
+	public List<ChargingSlot> getChargingSlots() {
+		List<ChargingSlot> slots = new ArrayList<ChargingSlot>(this.gasSlots);
+		slots.addAll(this.electricSlots);
+		return slots;
+	}
 
 	@Mutable
 	public void setChargingStationID(int chargingStationID) {
@@ -256,17 +318,17 @@ public class ChargingStation implements Runnable {
 
 	@Readonly
 	public float getLevelOfElectricityStorage() {
-		return levelOfElectricityStorage;
+		return this.electricityStorage.getLevel();
 	}
 
 	@Mutable
 	public void setLevelOfElectricityStorage(float levelOfElectricityStorage) {
-		this.levelOfElectricityStorage = levelOfElectricityStorage;
+		this.electricityStorage.setLevel(levelOfElectricityStorage);
 	}
 
 	@Readonly
 	public float getLevelOfGasStorage() {
-		return levelOfGasStorage;
+		return this.gasStorage.getLevel();
 	}
 
 	/**
@@ -274,16 +336,10 @@ public class ChargingStation implements Runnable {
 	 */
 	@Readonly
 	public float getExpectedWaitingTimeForElectricCars(){
-		List<Car> electricCars = this.waitingQueue.stream()
-			.filter(car -> car instanceof ElectricCar).toList();
-		float totalWaitingTime = (float) 0.0;
-		for (Car car: electricCars){
-			float missingAmount = car.getMissingAmountOfFuel();
-			float chargePerSecond = this.getElectricityOutputPerSecond();
-			float totalExpectedTime = missingAmount / chargePerSecond;
-			totalWaitingTime += totalExpectedTime;
-		}
-		return totalWaitingTime;
+		return this.estimateWaitingTime(
+			this.electricLane, this.electricChargingDemand,
+			this.electricSlots.size(), this.getAvailableElectricSlots(), this.getElectricityOutputPerSecond()
+		);
 	}
 
 	/**
@@ -291,55 +347,92 @@ public class ChargingStation implements Runnable {
 	 */
 	@Readonly
 	public float getExpectedWaitingTimeForGasCars(){
-		List<Car> gasCars = this.waitingQueue.stream()
-			.filter(car -> car instanceof GasCar).toList();
-		float totalWaitingTime = (float) 0.0;
-		for (Car car: gasCars){
-			float missingAmount = car.getMissingAmountOfFuel();
-			float chargePerSecond = this.getGasOutputPerSecond();
-			float totalExpectedTime = missingAmount / chargePerSecond;
-			totalWaitingTime += totalExpectedTime;
+		return this.estimateWaitingTime(
+			this.gasLane, this.gasChargingDemand,
+			this.gasSlots.size(), this.getAvailableGasSlots(), this.getGasOutputPerSecond()
+		);
+	}
+
+	/**
+	 * A new car doesn't wait if there are more free slots than waiting cars.
+	 * Otherwise it waits until the fuel owed to the waiting and the charging
+	 * cars has been delivered by all slots of that type together.
+	 */
+	@Readonly
+	private float estimateWaitingTime(WaitingLane lane, DoubleAdder chargingDemand, int numSlots, int freeSlots, float outputPerSecond) {
+		if (lane.size() < freeSlots) {
+			return 0;
+		}
+		if (numSlots == 0 || outputPerSecond <= 0) {
+			return Float.MAX_VALUE;
+		}
+		double owedFuel = lane.getWaitingDemand() + chargingDemand.sum();
+		return (float) (owedFuel / (numSlots * outputPerSecond));
+	}
+
+	/**
+	 * Changes the running total of fuel still owed to the cars charging at
+	 * slots of the given slot's type. Only the slot that owns a car's demand
+	 * calls this, see ChargingSlot.
+	 */
+	@Mutable
+	void addChargingDemand(ChargingSlot slot, float amount) {
+		if (slot.getFuelType() == FuelType.electric) {
+			this.electricChargingDemand.add(amount);
+		} else {
+			this.gasChargingDemand.add(amount);
 		}
-		return totalWaitingTime;
 	}
 
 	@Mutable
 	public void setLevelOfGasStorage(float levelOfGasStorage) {
-		this.levelOfGasStorage = levelOfGasStorage;
+		this.gasStorage.setLevel(levelOfGasStorage);
 	}
 
 	@Mutable
 	public void addCarToWaitingQueue(Car car) {
-		// If car is prioritized, add it after the last prioritized car
-		if (car.isPriority()) {
-			this.logger.finer("Car is priority. Adding it to the top of the waitingQueue.");
-
-			for (int i = 0; i < waitingQueue.size(); i++) {
-				if (!waitingQueue.get(i).isPriority()) {
-					waitingQueue.add(i, car);
-					this.logger.finer("Added priority car at position " + i);
-					return;
-				}
-			}
+		WaitingLane lane = this.getWaitingLane(car);
+		// The lane sets the enter time and the waiting state once it took the car
+		if (!lane.add(car)) {
+			this.logger.log(Level.WARNING, "%s is already in the waitingQueue.", car);
+			return;
+		}
+		this.logger.log(Level.FINE, "Added %s to waitingQueue with number %d.", car, (long) lane.size());
+		EventJournal journal = EventJournal.get();
+		if (journal != null) {
+			journal.queueEnter(car.getJournalId(), this.chargingStationID);
 		}
+		this.signalDispatch();
+	}
 
-		// Otherwise add normal
-		waitingQueue.add(car);
-		this.logger.fine(String.format(
-			"Added %s to waitingQueue with number %s.",
-			car.toString(), this.waitingQueue.size()
-		));
-		car.setEnterStationTime();
-		car.setCurrentState(CarState.inQueue);
+	/**
+	 * Returns the lane matching the fuel type of the car.
+	 */
+	@Readonly
+	private WaitingLane getWaitingLane(Car car) {
+		if (car instanceof ElectricCar) {
+			return this.electricLane;
+		}
+		return this.gasLane;
 	}
 
 	/**
 	 * Remove car from station waitingQueue.
+	 * Returns false if the station already handed the car to a slot.
 	 */
 	@Mutable
-	public void leaveStationWaitingQueue(Car car) {
-		waitingQueue.remove(car);
-		this.logger.fine(String.format("Removed %s from waitingQueue.", car));
+	public boolean leaveStationWaitingQueue(Car car) {
+		boolean removed = this.getWaitingLane(car).remove(car);
+		if (removed) {
+			this.logger.log(Level.FINE, "Removed %s from waitingQueue.", car);
+			EventJournal journal = EventJournal.get();
+			if (journal != null) {
+				journal.queueLeave(car.getJournalId(), this.chargingStationID, false);
+			}
+		} else {
+			this.logger.log(Level.FINE, "%s already left the waitingQueue.", car);
+		}
+		return removed;
 	}
 
 	/**
@@ -347,7 +440,7 @@ public class ChargingStation implements Runnable {
 	 */
 	@Mutable
 	public void leaveSlot(Car car) throws Exception{
-		this.logger.fine(String.format("%s is done charging. Removing it...", car.toString()));
+		this.logger.log(Level.FINE, "%s is done charging. Removing it...", car);
 		if (car instanceof ElectricCar) {
 			int index = this.electricSlots.indexOf(car);
 			if (index < 0){
@@ -362,154 +455,243 @@ public class ChargingStation implements Runnable {
 			} 
 			this.electricSlots.remove(index);		}
 		else {
-			logger.severe("Something went wrong: you order car numbered  " + car.toString()
-			+ " out of the station, but the car is not in the station");
+			logger.log(Level.SEVERE, "Something went wrong: you order car numbered  %s out of the station, but the car is not in the station", car);
 		}
 
-		this.logger.fine(String.format("Removed %s from slot.", car.toString()));
+		this.logger.log(Level.FINE, "Removed %s from slot.", car);
 
 	}
 
 	@Mutable
 	public void sendCarsToEmptyEletricSlots()
 	{
-		List<ChargingSlot> freeElecticSlots =  this.electricSlots.stream()
-			.filter(slot -> slot.getCurrentCar() == null).toList();
-		for (ChargingSlot slot: freeElecticSlots){
-			Optional<Car> nextPossibleCar = this.waitingQueue.stream()
-				.filter(car -> car instanceof ElectricCar).findFirst();
-			// if (nextPossibleCars.)
-			if (nextPossibleCar.isPresent()){
-				try{
-					Car car = nextPossibleCar.get();
-					car.setCharginSlot(slot);
-					this.waitingQueue.remove(car);
-
-				} catch (Exception e){
-					e.printStackTrace();
-				}
-			}
-		}
+		this.sendCarsToFreeSlots(this.electricLane, this.freeElectricSlots, this.numFreeElectricSlots);
 	}
 
 	@Mutable
 	public void sendCarsToEmptyGasSlots()
 	{
-		List<ChargingSlot> freeGasSlots =  this.gasSlots.stream()
-			.filter(slot -> slot.getCurrentCar() == null).toList();
-		for (ChargingSlot slot: freeGasSlots){
-			Optional<Car> nextPossibleCar = this.waitingQueue.stream()
-				.filter(car -> car instanceof GasCar).findFirst();
-			// if (nextPossibleCars.)
-			if (nextPossibleCar.isPresent()){
-				try{
-					Car car = nextPossibleCar.get();
-					car.setCharginSlot(slot);
-					this.waitingQueue.remove(car);
-				} catch (Exception e){
-					e.printStackTrace();
-				}
-			}
-		}
+		this.sendCarsToFreeSlots(this.gasLane, this.freeGasSlots, this.numFreeGasSlots);
 	}
 
+	/**
+	 * Hands the next cars of the lane to free slots until either runs out.
+	 * Taking a free slot is a single poll of the free slot queue.
+	 */
 	@Mutable
-	public float consumeGas(float requestedAmount)
+	private void sendCarsToFreeSlots(WaitingLane lane, ConcurrentLinkedQueue<ChargingSlot> freeSlots, AtomicInteger numFreeSlots)
 	{
-		float amount = 0;
-		
-		try
-		{
-			gasSemaphore.tryAcquire(1000, TimeUnit.MILLISECONDS);
-			
-			if(levelOfElectricityStorage == 0)
-			{
-				this.logger.warning("Gas storage of station is empty!");
+		while (!lane.isEmpty()){
+			ChargingSlot slot = freeSlots.poll();
+			if (slot == null){
+				return;
 			}
-			
-			amount = requestedAmount;
-			
-			//Clipping if requested amount is too large
-			if(amount > gasOutputPerSecond)
-			{
-				amount = gasOutputPerSecond;
+			numFreeSlots.decrementAndGet();
+			Car car = lane.poll();
+			if (car == null){
+				// The last car left the lane in the meantime
+				freeSlots.offer(slot);
+				numFreeSlots.incrementAndGet();
+				return;
 			}
-			
-			//Checking if requested amount is larger than what is available
-			if(amount > levelOfGasStorage)
-			{
-				amount = levelOfGasStorage;
+			EventJournal journal = EventJournal.get();
+			if (journal != null) {
+				journal.queueLeave(car.getJournalId(), this.chargingStationID, true);
+			}
+			try{
+				car.setCharginSlot(slot);
+			} catch (Exception e){
+				this.logger.log(Level.SEVERE, "Couldn't attach %s to %s: %s", car, slot, e);
+				// Undo the claim, otherwise the slot leaks
+				freeSlots.offer(slot);
+				numFreeSlots.incrementAndGet();
+				// The car is in no lane anymore, so it could never give up waiting
+				car.setCurrentState(CarState.leaving);
+				continue;
+			}
+			this.recordQueueToSlotTime(car);
+			synchronized (this.chargingLock) {
+				this.chargingLock.notifyAll();
 			}
-			
-			levelOfGasStorage -= amount;
-			setLevelOfGasStorage(levelOfGasStorage);
-			this.logger.finer("Station supplied " + amount + " of gas. New level of storage: " + this.levelOfGasStorage);
 		}
-		catch (InterruptedException e)
-		{
-			this.logger.warning("Did not gas semaphore!");
+	}
+
+	/**
+	 * Called by a slot after its car left. Marks the slot as free again in
+	 * the free queue of its own type.
+	 */
+	@Mutable
+	void releaseSlot(ChargingSlot slot) {
+		if (slot.getFuelType() == FuelType.electric) {
+			this.freeElectricSlots.offer(slot);
+			this.numFreeElectricSlots.incrementAndGet();
+		} else {
+			this.freeGasSlots.offer(slot);
+			this.numFreeGasSlots.incrementAndGet();
 		}
-		finally
-		{
-			gasSemaphore.release();
+		this.signalDispatch();
+	}
+
+	@Readonly
+	public AllocationPolicy getAllocationPolicy() {
+		return this.allocationPolicy;
+	}
+
+	@Mutable
+	public void setAllocationPolicy(AllocationPolicy allocationPolicy) {
+		this.allocationPolicy = allocationPolicy;
+	}
+
+	/**
+	 * Returns the runnable that delivers energy to the charging cars every step.
+	 */
+	@Readonly
+	public EnergyDispatcher getEnergyDispatcher() {
+		return this.energyDispatcher;
+	}
+
+	@Readonly
+	public int getChargingCars() {
+		return (this.electricSlots.size() - this.numFreeElectricSlots.get())
+			+ (this.gasSlots.size() - this.numFreeGasSlots.get());
+	}
+
+	/**
+	 * Blocks until at least one car is charging at the station.
+	 */
+	@Readonly
+	void awaitChargingCars() throws InterruptedException {
+		synchronized (this.chargingLock) {
+			while (this.getChargingCars() == 0) {
+				this.chargingLock.wait();
+			}
 		}
-		
-		return amount;
 	}
-	
-	public float consumeElectricity(float requestedAmount)
-	{
-		float amount = 0;
-		
-		try
-		{
-			electricitySemaphore.tryAcquire(1000, TimeUnit.MILLISECONDS);
-			
-			if(levelOfElectricityStorage == 0)
-			{
-				this.logger.warning("Electricity storage of station is empty!");
+
+	/**
+	 * Delivers one step worth of energy to all charging cars. The total demand
+	 * of each slot type is taken out of storage at once and then split between
+	 * the cars by the allocation policy.
+	 */
+	@Mutable
+	public void deliverEnergy() {
+		this.deliverEnergy(this.electricSlots, this.electricityStorage, this.electricityOutputPerSecond, "Electricity");
+		this.deliverEnergy(this.gasSlots, this.gasStorage, this.gasOutputPerSecond, "Gas");
+	}
+
+	@Mutable
+	private void deliverEnergy(ArrayList<ChargingSlot> slots, EnergyStorage storage, float outputPerSecond, String energyName) {
+		int count = slots.size();
+		float totalDemand = 0;
+		for (int i = 0; i < count; i++) {
+			Car car = slots.get(i).getCurrentCar();
+			this.chargingCars[i] = car;
+			this.allocations[i] = 0;
+			if (car != null) {
+				this.allocations[i] = Math.max(0, Math.min(car.getMissingAmountOfFuel(), outputPerSecond));
+				totalDemand += this.allocations[i];
 			}
-			
-			
-			amount = requestedAmount;
-			
-			//Clipping if requested amount is too large
-			if(amount > electricityOutputPerSecond)
-			{
-				amount = electricityOutputPerSecond;
+		}
+		if (totalDemand > 0) {
+			float granted = storage.withdraw(totalDemand, totalDemand);
+			if (granted < totalDemand) {
+				this.logger.log(Level.WARNING, "%s storage of station is empty!", energyName);
 			}
-			
-			//Checking if requested amount is larger than what is available
-			if(amount > levelOfElectricityStorage)
-			{
-				amount = levelOfElectricityStorage;
+			this.allocationPolicy.allocate(this.chargingCars, this.allocations, this.allocationOrder,
+				this.allocationDeadlines, count, granted);
+			float delivered = 0;
+			for (int i = 0; i < count; i++) {
+				if (this.chargingCars[i] != null) {
+					delivered += slots.get(i).deliver(this.chargingCars[i], this.allocations[i]);
+				}
 			}
-			
-			levelOfElectricityStorage -= amount;
-			setLevelOfElectricityStorage(levelOfElectricityStorage);
-			this.logger.finer("Station supplied " + amount + " of electricity. New level of storage: " + levelOfElectricityStorage);
+			// Cars that left their slot since the demand was summed get nothing
+			if (delivered < granted) {
+				storage.deposit(granted - delivered);
+			}
+			this.logger.log(Level.FINER, "Station supplied %.2f of %s. New level of storage: %.2f", delivered, energyName, storage.getLevel());
 		}
-		catch (InterruptedException e)
-		{
-			this.logger.warning("Did not get electricity semaphore!");
+		for (int i = 0; i < count; i++) {
+			this.chargingCars[i] = null;
 		}
-		finally
-		{
-			electricitySemaphore.release();
+	}
+
+	/**
+	 * Sends waiting cars to the free slots of the station.
+	 */
+	@Mutable
+	public void dispatchWaitingCars() {
+		this.sendCarsToEmptyGasSlots();
+		this.sendCarsToEmptyEletricSlots();
+	}
+
+	/**
+	 * Tells the station that a car arrived or a slot got free, so it has to
+	 * match cars to slots again. By default this wakes up the station thread,
+	 * a dispatch scheduler replaces that, e.g. in the discrete-event engine.
+	 */
+	@Mutable
+	public void signalDispatch() {
+		Runnable scheduler = this.dispatchScheduler;
+		if (scheduler != null) {
+			scheduler.run();
+		} else {
+			this.dispatchSignal.release();
 		}
-		
-		return amount;
 	}
-	
+
+	@Mutable
+	public void setDispatchScheduler(Runnable dispatchScheduler) {
+		this.dispatchScheduler = dispatchScheduler;
+	}
+
+	@Mutable
+	private void recordQueueToSlotTime(Car car) {
+		long waitedMillis = Duration.between(car.getEnterStationTime(), SimulationClock.now()).toMillis();
+		this.dispatchedCars.incrementAndGet();
+		this.totalQueueToSlotMillis.addAndGet(waitedMillis);
+		this.maxQueueToSlotMillis.accumulateAndGet(waitedMillis, Math::max);
+		this.logger.log(Level.FINE, "%s waited %d ms from queue to slot.", car, waitedMillis);
+	}
+
+	@Readonly
+	public long getDispatchedCars() {
+		return this.dispatchedCars.get();
+	}
+
+	/**
+	 * return the average time in milliseconds cars spent between joining the queue and getting a slot
+	 */
+	@Readonly
+	public float getAverageQueueToSlotMillis() {
+		long count = this.dispatchedCars.get();
+		if (count == 0) {
+			return 0;
+		}
+		return (float) this.totalQueueToSlotMillis.get() / count;
+	}
+
+	@Readonly
+	public long getMaxQueueToSlotMillis() {
+		return this.maxQueueToSlotMillis.get();
+	}
+
+	/**
+	 * Waits until a car arrives or a slot gets free and dispatches right away.
+	 * An idle station is blocked and doesn't use any CPU.
+	 */
 	@Override
 	public void run() {
 		while(true)
 		{
 			try {
-				Thread.sleep(1000);
-				this.sendCarsToEmptyGasSlots();
-				this.sendCarsToEmptyEletricSlots();
+				this.dispatchSignal.acquire();
+				this.dispatchSignal.drainPermits();
+				this.dispatchWaitingCars();
 				
+			} catch (InterruptedException e) {
+				this.logger.fine("Interrupted, stopping station thread.");
+				return;
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -0,0 +1,34 @@
+package stations;
+
+import logging.SimLogger;
+import simulation.SimulationClock;
+
+/**
+ * Delivers energy to all charging cars of one station once per simulation
+ * step. Blocks while no car is charging at the station.
+ */
+public class EnergyDispatcher implements Runnable {
+	private ChargingStation station;
+	private SimLogger logger;
+
+	public EnergyDispatcher(ChargingStation station) {
+		this.station = station;
+		this.logger = SimLogger.getLogger(EnergyDispatcher.class, station);
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				this.station.awaitChargingCars();
+				SimulationClock.sleep(1000);
+				this.station.deliverEnergy();
+			} catch (InterruptedException e) {
+				this.logger.fine("Interrupted, stopping energy dispatcher.");
+				return;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package stations;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import annotations.Mutable;
+import annotations.Readonly;
+
+/**
+ * Energy storage of a station. The level is kept as a fixed-point number of
+ * thousandths in an atomic long, so withdrawals from many slots at the same
+ * time are exact and never block.
+ */
+public class EnergyStorage {
+	private static final float SCALE = 1000f;
+
+	private AtomicLong level = new AtomicLong();
+
+	@Readonly
+	public float getLevel() {
+		return this.level.get() / SCALE;
+	}
+
+	@Mutable
+	public void setLevel(float level) {
+		this.level.set(toFixed(level));
+	}
+
+	@Readonly
+	public boolean isEmpty() {
+		return this.level.get() == 0;
+	}
+
+	/**
+	 * Takes min(requested, maximum, level) out of the storage and returns the
+	 * amount that was taken.
+	 */
+	@Mutable
+	public float withdraw(float requested, float maximum) {
+		long wanted = Math.min(toFixed(requested), toFixed(maximum));
+		if (wanted <= 0) {
+			return 0;
+		}
+		while (true) {
+			long current = this.level.get();
+			long amount = Math.min(wanted, current);
+			if (this.level.compareAndSet(current, current - amount)) {
+				return amount / SCALE;
+			}
+		}
+	}
+
+	/**
+	 * Puts an amount back into the storage, e.g. energy that was withdrawn
+	 * but couldn't be delivered.
+	 */
+	@Mutable
+	public void deposit(float amount) {
+		long added = toFixed(amount);
+		if (added > 0) {
+			this.level.addAndGet(added);
+		}
+	}
+
+	@Readonly
+	private static long toFixed(float amount) {
+		return (long) (amount * SCALE);
+	}
+}
@@ -0,0 +1,133 @@
+package stations;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import annotations.Mutable;
+import annotations.Readonly;
+import car.Car;
+import car.CarState;
+
+/**
+ * Waiting lane of one fuel type. Priority cars are served before normal cars,
+ * otherwise cars are served in the order they arrived. The lane also keeps the
+ * total amount of fuel its cars are missing, so it never has to be recomputed.
+ *
+ * The lane is lock-free and can be used by any number of car and station
+ * threads. Every car gets a ticket that is claimed exactly once, either by
+ * poll() or by remove(). remove() unlinks the ticket from its queue right
+ * away, so cars that gave up don't pile up in a lane nobody polls.
+ */
+public class WaitingLane {
+	private ConcurrentLinkedQueue<Ticket> priorityCars = new ConcurrentLinkedQueue<Ticket>();
+	private ConcurrentLinkedQueue<Ticket> normalCars = new ConcurrentLinkedQueue<Ticket>();
+	private ConcurrentHashMap<Car, Ticket> tickets = new ConcurrentHashMap<Car, Ticket>();
+	private AtomicInteger size = new AtomicInteger();
+	private DoubleAdder waitingDemand = new DoubleAdder();
+
+	private static class Ticket {
+		private Car car;
+		private ConcurrentLinkedQueue<Ticket> queue;
+		private AtomicBoolean claimed = new AtomicBoolean(false);
+
+		private Ticket(Car car, ConcurrentLinkedQueue<Ticket> queue) {
+			this.car = car;
+			this.queue = queue;
+		}
+
+		private boolean claim() {
+			return this.claimed.compareAndSet(false, true);
+		}
+	}
+
+	/**
+	 * Adds a car that is looking for a station to the lane. Returns false if
+	 * the car is already waiting or not looking anymore, and leaves the car
+	 * untouched then. Otherwise the car's enter time and inQueue state are
+	 * set before poll() can see it, so a station that takes the car right
+	 * away never finds it in an older state.
+	 */
+	@Mutable
+	public boolean add(Car car) {
+		Ticket ticket = new Ticket(car, car.isPriority() ? this.priorityCars : this.normalCars);
+		if (this.tickets.putIfAbsent(car, ticket) != null) {
+			return false;
+		}
+		if (car.getCurrentState() != CarState.looking) {
+			// A concurrent add of the same car won and the car was polled already
+			this.tickets.remove(car, ticket);
+			return false;
+		}
+		car.setEnterStationTime();
+		car.setCurrentState(CarState.inQueue);
+		this.size.incrementAndGet();
+		this.waitingDemand.add(car.getMissingAmountOfFuel());
+		ticket.queue.offer(ticket);
+		return true;
+	}
+
+	/**
+	 * Removes and returns the next car to be served, or null if the lane is empty.
+	 */
+	@Mutable
+	public Car poll() {
+		while (true) {
+			Ticket ticket = this.priorityCars.poll();
+			if (ticket == null) {
+				ticket = this.normalCars.poll();
+			}
+			if (ticket == null) {
+				return null;
+			}
+			if (ticket.claim()) {
+				this.release(ticket);
+				return ticket.car;
+			}
+			// The car was removed while poll() was taking its ticket
+		}
+	}
+
+	/**
+	 * Removes the car from the lane. Returns false if the car was not waiting
+	 * anymore, e.g. because it was handed to a slot at the same time.
+	 */
+	@Mutable
+	public boolean remove(Car car) {
+		Ticket ticket = this.tickets.get(car);
+		if (ticket == null || !ticket.claim()) {
+			return false;
+		}
+		this.release(ticket);
+		// Claimed first, so a poll() that still finds the ticket skips it
+		ticket.queue.remove(ticket);
+		return true;
+	}
+
+	@Readonly
+	public int size() {
+		return this.size.get();
+	}
+
+	@Readonly
+	public boolean isEmpty() {
+		return this.size.get() == 0;
+	}
+
+	/**
+	 * Returns the amount of fuel all cars in the lane are missing.
+	 */
+	@Readonly
+	public float getWaitingDemand() {
+		return (float) this.waitingDemand.sum();
+	}
+
+	@Mutable
+	private void release(Ticket ticket) {
+		this.tickets.remove(ticket.car, ticket);
+		this.size.decrementAndGet();
+		this.waitingDemand.add(-ticket.car.getMissingAmountOfFuel());
+	}
+}
@@ -20,7 +20,15 @@ public class weather {
 	}
 	public WeatherState getRandomWeather()
 	{
-		Random objRandom = new Random();
+		return this.getRandomWeather(new Random());
+	}
+
+	/**
+	 * Picks the weather with the given random generator, so a seeded one
+	 * gives the same weather on every run.
+	 */
+	public WeatherState getRandomWeather(Random objRandom)
+	{
 		WeatherState[] varWeatherState = WeatherState.values();
 		this.weatherState = varWeatherState[objRandom.nextInt(varWeatherState.length)];
 		return this.weatherState;